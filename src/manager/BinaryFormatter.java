@@ -0,0 +1,167 @@
+package manager;
+
+import tasks.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Компактный двоичный формат снимка: заголовок с версией, затем записи вида
+// [тип и статус в одном байте][varint ID][varint ID эпика для подзадачи][строка имени][строка описания].
+// Строка хранится как varint (длина + 1) и байты UTF-8, 0 означает null
+public class BinaryFormatter {
+    private static final byte[] MAGIC = {'K', 'B', 'N', 'B'};
+    public static final int VERSION = 1;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private BinaryFormatter() {
+
+    }
+
+    // Заголовок файла: сигнатура, версия формата и число записей
+    public static void writeHeader(OutputStream output, int count) throws IOException {
+        output.write(MAGIC);
+        output.write(VERSION);
+        writeVarInt(output, count);
+    }
+
+    // Проверка сигнатуры двоичного формата в начале файла
+    public static boolean isBinary(ByteBuffer buffer) {
+        if (buffer.remaining() < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(buffer.position() + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Чтение заголовка, возвращает число записей в файле
+    public static int readHeader(ByteBuffer buffer) {
+        if (!isBinary(buffer)) {
+            throw new IllegalArgumentException("Файл не в двоичном формате");
+        }
+        buffer.position(buffer.position() + MAGIC.length);
+
+        int version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия двоичного формата: " + version);
+        }
+        return readVarInt(buffer);
+    }
+
+    public static <T extends Task> void write(OutputStream output, T task) throws IOException {
+        if (task == null) {
+            throw new IllegalArgumentException("На вход метода write передан null");
+        }
+
+        TaskType taskType = task instanceof Subtask ? TaskType.SUBTASK
+                : task instanceof Epic ? TaskType.EPIC : TaskType.TASK;
+
+        output.write(taskType.ordinal() << 4 | task.getTaskStatus().ordinal());
+        writeVarInt(output, task.getTaskId());
+        if (task instanceof Subtask subtask) {
+            writeVarInt(output, subtask.getEpicIdentifier());
+        }
+        writeString(output, task.getTaskName());
+        writeString(output, task.getTaskDescription());
+    }
+
+    public static <T extends Task> T read(ByteBuffer buffer) {
+        try {
+            int tag = buffer.get() & 0xFF;
+            int typeIndex = tag >>> 4;
+            int statusIndex = tag & 0x0F;
+            if (typeIndex >= TYPES.length || statusIndex >= STATUSES.length) {
+                throw new IllegalArgumentException("Неверный формат записи: тег " + tag);
+            }
+
+            TaskType taskType = TYPES[typeIndex];
+            TaskStatus taskStatus = STATUSES[statusIndex];
+            int id = readVarInt(buffer);
+            int epicId = taskType == TaskType.SUBTASK ? readVarInt(buffer) : 0;
+            String taskName = readString(buffer);
+            String taskDescription = readString(buffer);
+
+            return create(id, taskType, taskName, taskStatus, taskDescription, epicId);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Неожиданный конец двоичных данных", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Task> T create(int id, TaskType taskType, String taskName, TaskStatus taskStatus,
+                                             String taskDescription, int epicId) {
+        return switch (taskType) {
+            case SUBTASK -> {
+                Subtask subtask = new Subtask(id, taskName, taskDescription, taskStatus);
+                subtask.setEpicIdentifier(epicId);
+                yield (T) subtask;
+            }
+            case EPIC -> {
+                Epic epic = new Epic(id, taskName, taskDescription);
+                epic.setTaskStatus(taskStatus);
+                yield (T) epic;
+            }
+            case TASK -> (T) new Task(id, taskName, taskDescription, taskStatus);
+        };
+    }
+
+    static void writeVarInt(OutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Слишком длинное число varint");
+    }
+
+    private static void writeString(OutputStream output, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(output, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(output, bytes.length + 1);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Неожиданный конец двоичных данных");
+        }
+
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(buffer.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -2,6 +2,9 @@ package manager;
 
 import tasks.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 public class CSVFormatter {
 
     private CSVFormatter() {
@@ -18,26 +21,11 @@ public class CSVFormatter {
         }
 
         StringBuilder result = new StringBuilder();
-
-        result.append(task.getTaskId()).append(",");
-
-        if (task instanceof Subtask) {
-            result.append(TaskType.SUBTASK).append(",");
-        } else if (task instanceof Epic) {
-            result.append(TaskType.EPIC).append(",");
-        } else {
-            result.append(TaskType.TASK).append(",");
-        }
-
-        result.append(task.getTaskName()).append(",");
-        result.append(task.getTaskStatus()).append(",");
-
-        result.append(task.getTaskDescription()).append(",");
-
-        if (task instanceof Subtask) {
-            result.append(((Subtask) task).getEpicIdentifier());
+        try {
+            CsvCodec.encode(task, result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder не выбрасывает IOException
         }
-
         return result.toString();
     }
 
@@ -46,37 +34,7 @@ public class CSVFormatter {
             throw new IllegalArgumentException("Строка данных не может быть пустой или null");
         }
 
-        String[] fields = value.split(",");
-
-        if (fields.length < 5) {
-            throw new IllegalArgumentException("Неверный формат строки данных");
-        }
-
-        int id = Integer.parseInt(fields[0]); // ID задачи
-        TaskType taskType = TaskType.valueOf(fields[1].toUpperCase()); // Тип задачи
-        String taskName = fields[2]; // Имя задачи
-        TaskStatus taskStatus = TaskStatus.valueOf(fields[3].toUpperCase()); // Статус задачи
-        String taskDescription = fields[4]; // Описание задачи
-
-        return switch (taskType) {
-            case SUBTASK -> {
-                Subtask subtask = new Subtask(id, taskName, taskDescription, taskStatus);
-                // ID эпика подзадачи
-                if (fields.length >= 6 && !fields[5].isBlank()) {
-                    subtask.setEpicIdentifier(Integer.parseInt(fields[5]));
-                }
-
-                yield (T) subtask;
-            }
-            case EPIC -> {
-                Epic epic = new Epic(id, taskName, taskDescription);
-                epic.setTaskStatus(taskStatus);
-                yield (T) epic;
-            }
-            case TASK -> {
-                yield (T) new Task(id, taskName, taskDescription, taskStatus);
-            }
-        };
+        return CsvCodec.decode(value, 0, value.length());
     }
 
 }
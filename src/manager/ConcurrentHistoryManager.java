@@ -0,0 +1,162 @@
+package manager;
+
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Потокобезопасная история просмотров. Просмотр не берет блокировку: задача записывается в кольцевой буфер
+// полосы потока, а список истории обновляется пакетами под блокировкой - когда буфер наполовину заполнен,
+// при чтении истории и при удалении. Блокировка ждет только поток, чей буфер полон, пока его разбирает
+// другой поток. Просмотры нумеруются общим счетчиком и применяются по номерам, поэтому порядок
+// последовательных просмотров из разных потоков сохраняется. getHistory возвращает снимок после всех
+// завершенных просмотров
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int BUFFER_SIZE = 16; // Размер буфера полосы, степень двойки
+    private static final int MASK = BUFFER_SIZE - 1;
+
+    private final HistoryManager history; // Меняется только под lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Stripe[] stripes;
+    private final AtomicLong clock = new AtomicLong(); // Номер следующего просмотра
+
+    public ConcurrentHistoryManager() {
+        this(new InMemoryHistoryManager());
+    }
+
+    // Обертка над непотокобезопасной историей, которая дальше не должна использоваться напрямую
+    public ConcurrentHistoryManager(HistoryManager history) {
+        this.history = history;
+        int count = Math.min(64, Integer.highestOneBit(4 * Runtime.getRuntime().availableProcessors() - 1) << 1);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // Возвращает снимок истории
+    @Override
+    public List<Task> getHistory() {
+        lock.lock();
+        try {
+            drain();
+            return history.getHistory();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Добавление задачи в историю без блокировки, пока буфер полосы не переполнен
+    @Override
+    public void addInHistory(Task task) {
+        if (task == null || task.getTaskId() <= 0) return;
+
+        Stripe stripe = stripes[stripeIndex()];
+        View view = new View(clock.getAndIncrement(), task);
+        while (!stripe.offer(view)) {
+            lock.lock();
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (stripe.pending() >= BUFFER_SIZE / 2 && lock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return history.getCapacity();
+    }
+
+    // Удаление из истории после применения уже записанных просмотров
+    @Override
+    public void removeFromHistory(int id) {
+        lock.lock();
+        try {
+            drain();
+            history.removeFromHistory(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Перенос просмотров из буферов всех полос в историю по номерам. Вызывается под lock
+    private void drain() {
+        List<View> views = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.drainTo(views);
+        }
+        views.sort(Comparator.comparingLong(view -> view.order));
+        for (View view : views) {
+            history.addInHistory(view.task);
+        }
+    }
+
+    private int stripeIndex() {
+        long identifier = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return (int) (identifier >>> 32) & (stripes.length - 1);
+    }
+
+    // Просмотр задачи с номером
+    private static final class View {
+        private final long order;
+        private final Task task;
+
+        private View(long order, Task task) {
+            this.order = order;
+            this.task = task;
+        }
+    }
+
+    // Кольцевой буфер полосы: писатели занимают ячейку по счетчику записей без блокировки,
+    // разбор под блокировкой истории идет до первой еще не заполненной ячейки
+    private static final class Stripe {
+        private final AtomicReferenceArray<View> views = new AtomicReferenceArray<>(BUFFER_SIZE);
+        private final AtomicLong writes = new AtomicLong();
+        private volatile long reads; // Меняется только при разборе под блокировкой
+
+        // false, если буфер полон
+        private boolean offer(View view) {
+            while (true) {
+                long write = writes.get();
+                if (write - reads >= BUFFER_SIZE) {
+                    return false;
+                }
+                if (writes.compareAndSet(write, write + 1)) {
+                    views.setRelease((int) write & MASK, view);
+                    return true;
+                }
+            }
+        }
+
+        private long pending() {
+            return writes.get() - reads;
+        }
+
+        private void drainTo(List<View> target) {
+            long read = reads;
+            long write = writes.get();
+            for (; read < write; read++) {
+                int index = (int) read & MASK;
+                View view = views.getAcquire(index);
+                if (view == null) {
+                    break; // Писатель занял ячейку, но еще не записал просмотр
+                }
+                views.setRelease(index, null);
+                target.add(view);
+            }
+            reads = read;
+        }
+    }
+}
@@ -0,0 +1,632 @@
+package manager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Потокобезопасный менеджер задач. Чтение идет из ConcurrentHashMap без блокировок,
+// изменения эпика и его подзадач выполняются под блокировкой этого эпика, поэтому потоки,
+// работающие с разными эпиками, не мешают друг другу. Удаление всех задач одного типа
+// и транзакции выполняются исключительно, остальные изменения идут параллельно
+public class ConcurrentTaskManager implements TaskManager {
+    private final Map<Integer, Task> taskMap = new ConcurrentHashMap<>();
+    private final Map<Integer, Epic> epicMap = new ConcurrentHashMap<>();
+    private final Map<Integer, Subtask> subtaskMap = new ConcurrentHashMap<>();
+    // ID таблиц по возрастанию для постраничного чтения. ID добавляется после записи в таблицу
+    // и удаляется после удаления из нее, поэтому страница пропускает ID, которых в таблице уже нет
+    private final NavigableSet<Integer> taskIds = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Integer> epicIds = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Integer> subtaskIds = new ConcurrentSkipListSet<>();
+    // Блокировки эпиков по ID: создаются вместе с эпиком и удаляются вместе с ним,
+    // поэтому блокировки нет - значит, эпика нет в менеджере
+    private final Map<Integer, Object> epicLocks = new ConcurrentHashMap<>();
+    private final AtomicInteger generatorId = new AtomicInteger(1);
+    private final HistoryManager historyManager = Managers.getConcurrentHistory(); // Просмотры без блокировки
+
+    // Обычные изменения берут блокировку на чтение, транзакции и массовое удаление - на запись
+    private final ReentrantReadWriteLock transactionGate = new ReentrantReadWriteLock();
+    private TransactionLog transaction; // Меняется только под блокировкой на запись
+
+    /*
+     *  Задачи
+     */
+
+    // Создание новой задачи
+    @Override
+    public void createNewTask(Task task) {
+        shared(() -> {
+            task.setTaskId(getNextId());
+            put(taskMap, task.getTaskId(), task);
+            return null;
+        });
+    }
+
+    // Получение списка задач
+    @Override
+    public List<Task> getTasks() {
+        return new ArrayList<>(taskMap.values());
+    }
+
+    // Удаление всех задач
+    @Override
+    public void deleteAllTasks() {
+        exclusive(() -> {
+            for (int identifier : taskMap.keySet()) {
+                removeFromHistory(identifier);
+            }
+            clear(taskMap);
+            return null;
+        });
+    }
+
+    // Обновление задачи
+    @Override
+    public Task updateTask(Task task) {
+        return shared(() -> {
+            remember(taskMap, task.getTaskId());
+            return taskMap.replace(task.getTaskId(), task) != null ? task : null;
+        });
+    }
+
+    // Получение задачи по идентификатору
+    @Override
+    public Task getTaskById(int identifier) {
+        Task task = taskMap.get(identifier);
+        addInHistory(task);
+        return task;
+    }
+
+    //Удаление задачи по идентификатору
+    @Override
+    public Task deleteTaskById(int identifier) {
+        return shared(() -> {
+            Task task = remove(taskMap, identifier);
+            removeFromHistory(identifier);
+            return task;
+        });
+    }
+
+    /*
+     *  Эпики
+     */
+
+    //Создание нового эпика
+    @Override
+    public void createNewEpic(Epic epic) {
+        shared(() -> {
+            epic.setTaskId(getNextId());
+            put(epicMap, epic.getTaskId(), epic);
+            return null;
+        });
+    }
+
+    // Получение списка эпиков
+    @Override
+    public List<Epic> getEpics() {
+        return new ArrayList<>(epicMap.values());
+    }
+
+    // Удаление всех эпиков, включая их подзадачи
+    @Override
+    public void deleteAllEpics() {
+        exclusive(() -> {
+            for (Epic epic : epicMap.values()) {
+                for (Subtask subtask : epic.getSubtasks()) {
+                    removeFromHistory(subtask.getTaskId());
+                }
+                removeFromHistory(epic.getTaskId());
+            }
+
+            clear(subtaskMap);
+            clear(epicMap);
+            epicLocks.clear();
+            return null;
+        });
+    }
+
+    // Обновление эпика
+    @Override
+    public Epic updateEpic(Epic epic) {
+        return withEpic(epic.getTaskId(), currentEpic -> {
+            touch(epic);
+            epic.adoptSubtasks(currentEpic);
+            put(epicMap, epic.getTaskId(), epic);
+            refreshEpicStatus(epic);
+            return epic;
+        });
+    }
+
+    // Получение эпика по идентификатору
+    @Override
+    public Epic getEpicById(int identifier) {
+        Epic epic = epicMap.get(identifier);
+        addInHistory(epic);
+        return epic;
+    }
+
+    // Удаление эпика по идентификатору
+    @Override
+    public Epic deleteEpicById(int identifier) {
+        Epic epic = withEpic(identifier, currentEpic -> {
+            remove(epicMap, identifier);
+            for (Subtask subtask : currentEpic.getSubtasks()) {
+                remove(subtaskMap, subtask.getTaskId());
+                removeFromHistory(subtask.getTaskId());
+            }
+            epicLocks.remove(identifier);
+            return currentEpic;
+        });
+        removeFromHistory(identifier);
+        return epic;
+    }
+
+    // Получение копии списка подзадач эпика, снятой под блокировкой эпика. Список эпика, которого нет
+    // в менеджере, менеджер не меняет, поэтому копируется без блокировки
+    @Override
+    public List<Subtask> getEpicSubtasks(Epic epic) {
+        Object lock = epicLocks.get(epic.getTaskId());
+        if (lock == null) {
+            return new ArrayList<>(epic.getSubtasks());
+        }
+        synchronized (lock) {
+            return new ArrayList<>(epic.getSubtasks());
+        }
+    }
+
+    /*
+     *  Подзадачи
+     */
+
+    // Создание новой подзадачи. Подзадача не создается, если эпика уже нет в менеджере
+    @Override
+    public void createNewSubtask(Epic epic, Subtask subtask) {
+        if (epic.getTaskId() == subtask.getTaskId()) {
+            return;
+        }
+
+        withEpic(epic.getTaskId(), currentEpic -> {
+            subtask.setTaskId(getNextId());
+            subtask.setEpicIdentifier(epic.getTaskId());
+            put(subtaskMap, subtask.getTaskId(), subtask);
+            touch(epic);
+            epic.addSubtask(subtask);
+            refreshEpicStatus(epic);
+            return null;
+        });
+    }
+
+    // Получения списка всех подзадач
+    @Override
+    public List<Subtask> getSubtasks() {
+        return new ArrayList<>(subtaskMap.values());
+    }
+
+    // Получение подзадачи по идентификатору
+    @Override
+    public Subtask getSubtaskById(int identifier) {
+        Subtask subtask = subtaskMap.get(identifier);
+        addInHistory(subtask);
+        return subtask;
+    }
+
+    // Удаление всех подзадач
+    @Override
+    public void deleteAllSubtasks() {
+        exclusive(() -> {
+            for (int identifier : subtaskMap.keySet()) {
+                removeFromHistory(identifier);
+            }
+            clear(subtaskMap);
+
+            for (Epic epic : epicMap.values()) {
+                touch(epic);
+                epic.clearSubtasks();
+                refreshEpicStatus(epic);
+            }
+            return null;
+        });
+    }
+
+    // Удаление подзадачи по идентификатору
+    @Override
+    public Subtask deleteSubtaskById(int identifier) {
+        Subtask subtask = shared(() -> {
+            Subtask currentSubtask = subtaskMap.get(identifier);
+            if (currentSubtask == null) {
+                return null;
+            }
+
+            // Эпик подзадачи не меняется, поэтому блокировка берется по ID эпика из найденной подзадачи.
+            // Без блокировки эпик уже удален вместе с подзадачами
+            Object lock = epicLocks.get(currentSubtask.getEpicIdentifier());
+            if (lock == null) {
+                return remove(subtaskMap, identifier);
+            }
+            synchronized (lock) {
+                Subtask removed = remove(subtaskMap, identifier);
+                Epic epic = epicMap.get(currentSubtask.getEpicIdentifier());
+                if (removed != null && epic != null) {
+                    touch(epic);
+                    epic.removeSubtask(removed);
+                    refreshEpicStatus(epic);
+                }
+                return removed;
+            }
+        });
+        removeFromHistory(identifier);
+        return subtask;
+    }
+
+    // Обновление подзадачи
+    @Override
+    public Subtask updateSubtask(Subtask subtask) {
+        if (subtask.getEpicIdentifier() == subtask.getTaskId()) {
+            return null;
+        }
+
+        return shared(() -> {
+            Subtask currentSubtask = subtaskMap.get(subtask.getTaskId());
+            if (currentSubtask == null) {
+                return null;
+            }
+
+            Object lock = epicLocks.get(currentSubtask.getEpicIdentifier());
+            if (lock == null) {
+                return null; // Эпик удален вместе с подзадачей
+            }
+            synchronized (lock) {
+                if (!subtaskMap.containsKey(subtask.getTaskId())) {
+                    return null; // Подзадача удалена, пока ожидалась блокировка
+                }
+                subtask.setEpicIdentifier(currentSubtask.getEpicIdentifier()); // Сохранение связи подзадачи с эпиком
+                put(subtaskMap, subtask.getTaskId(), subtask);
+                Epic epic = epicMap.get(subtask.getEpicIdentifier());
+
+                if (epic != null) {
+                    // Замена подзадачи в списке эпика с обновлением статуса
+                    touch(epic);
+                    epic.replaceSubtask(subtask);
+                    refreshEpicStatus(epic);
+                }
+                return subtask;
+            }
+        });
+    }
+
+    // Страница задач по возрастанию ID. Обход набора ID не блокируется изменениями: задачи, созданные
+    // во время обхода, получают большие ID, поэтому прочитанная часть страницы не сдвигается
+    @Override
+    public List<Task> getTasks(int afterId, int limit) {
+        return page(taskMap, taskIds, afterId, limit);
+    }
+
+    // Страница эпиков по возрастанию ID
+    @Override
+    public List<Epic> getEpics(int afterId, int limit) {
+        return page(epicMap, epicIds, afterId, limit);
+    }
+
+    // Страница подзадач по возрастанию ID
+    @Override
+    public List<Subtask> getSubtasks(int afterId, int limit) {
+        return page(subtaskMap, subtaskIds, afterId, limit);
+    }
+
+    // Поток задач прямо по таблице. Обход слабо согласован: изменения во время обхода могут быть
+    // видны или нет, а размер частей известен только приблизительно, поэтому поток не SIZED
+    @Override
+    public Stream<Task> streamTasks() {
+        return taskMap.values().stream();
+    }
+
+    // Поток эпиков прямо по таблице
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epicMap.values().stream();
+    }
+
+    // Поток подзадач прямо по таблице
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtaskMap.values().stream();
+    }
+
+    // Неизменяемое живое представление таблицы задач, обход слабо согласован
+    @Override
+    public Collection<Task> getTasksView() {
+        return Collections.unmodifiableCollection(taskMap.values());
+    }
+
+    // Неизменяемое живое представление таблицы эпиков
+    @Override
+    public Collection<Epic> getEpicsView() {
+        return Collections.unmodifiableCollection(epicMap.values());
+    }
+
+    // Неизменяемое живое представление таблицы подзадач
+    @Override
+    public Collection<Subtask> getSubtasksView() {
+        return Collections.unmodifiableCollection(subtaskMap.values());
+    }
+
+    // Выбор плана запроса: подзадачи эпика или порядок ID, иначе перебор таблиц. Число ID в диапазоне
+    // оценивается шириной диапазона: размер части набора ID считается только полным обходом
+    @Override
+    public TaskQuery.Plan plan(TaskQuery query) {
+        List<TaskType> types = query.types();
+        TaskQuery.Plan plan = null;
+
+        if (query.getEpicIdentifier() != null && types.contains(TaskType.SUBTASK)) {
+            Epic epic = epicMap.get(query.getEpicIdentifier());
+            Iterable<Subtask> subtasks = epic != null ? () -> getEpicSubtasks(epic).iterator() : List.of();
+            int count = epic != null ? epic.getSubtasks().size() : 0;
+            plan = TaskQuery.Plan.cheaper(plan, query.plan("подзадачи эпика", count, false, List.of(subtasks)));
+        }
+
+        List<Iterable<? extends Task>> tables = new ArrayList<>();
+        long size = 0;
+        for (TaskType taskType : types) {
+            Map<Integer, ? extends Task> map = mapOf(taskType);
+            tables.add(range(map, idsOf(map), query.getFromId(), query.getToId()));
+            size += map.size();
+        }
+        if (query.hasIdRange()) {
+            long count = Math.min(size, query.idSpan());
+            plan = TaskQuery.Plan.cheaper(plan, query.plan("порядок ID", count, true, tables));
+        }
+        return plan != null ? plan : query.scan(tables, size, true);
+    }
+
+    // Задачи таблицы с ID от fromId до toId по возрастанию ID
+    private static <T extends Task> Iterable<T> range(Map<Integer, T> map, NavigableSet<Integer> identifiers,
+                                                     int fromId, int toId) {
+        if (fromId > toId) {
+            return List.of();
+        }
+        return () -> identifiers.subSet(fromId, true, toId, true).stream()
+                .map(map::get)
+                .filter(Objects::nonNull)
+                .iterator();
+    }
+
+    private static <T extends Task> List<T> page(Map<Integer, T> map, NavigableSet<Integer> identifiers,
+                                                 int afterId, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Размер страницы не может быть отрицательным");
+        }
+
+        List<T> page = new ArrayList<>(Math.min(limit, 64));
+        Iterator<Integer> iterator = identifiers.tailSet(afterId, false).iterator();
+        while (page.size() < limit && iterator.hasNext()) {
+            T task = map.get(iterator.next());
+            if (task != null) {
+                page.add(task);
+            }
+        }
+        return page;
+    }
+
+    // Возвращает историю
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    // Выполнение группы изменений как одного целого. Транзакция выполняется исключительно:
+    // другие потоки читают без ожидания, но их изменения ждут завершения транзакции
+    @Override
+    public void inTransaction(Consumer<TaskManager> changes) {
+        exclusive(() -> {
+            if (transaction != null) {
+                changes.accept(this);
+                return null;
+            }
+
+            transaction = new TransactionLog(generatorId.get());
+            try {
+                changes.accept(this);
+                commit();
+            } catch (RuntimeException | Error e) {
+                rollback();
+                throw e;
+            } finally {
+                transaction = null;
+            }
+            return null;
+        });
+    }
+
+    // Фиксация: пересчет статусов затронутых эпиков и удаление из истории
+    private void commit() {
+        for (Epic epic : transaction.getStaleEpics()) {
+            epic.refreshStatus();
+        }
+        for (int identifier : transaction.getHistoryRemovals()) {
+            historyManager.removeFromHistory(identifier);
+        }
+    }
+
+    // Откат: восстановление таблиц, подзадач и статусов эпиков и генератора ID.
+    // Блокировки эпиков создаются заново для эпиков, оставшихся после отката
+    private void rollback() {
+        transaction.rollback(taskMap, epicMap, subtaskMap, generatorId.get());
+        transaction.forEachRestored(generatorId.get(), identifier -> {
+            reorder(taskMap, identifier);
+            reorder(epicMap, identifier);
+            reorder(subtaskMap, identifier);
+        });
+        generatorId.set(transaction.getGeneratorId());
+        epicLocks.clear();
+        for (int identifier : epicMap.keySet()) {
+            epicLocks.put(identifier, new Object());
+        }
+    }
+
+    // Приведение набора ID к таблице после отката
+    private void reorder(Map<Integer, ? extends Task> map, int identifier) {
+        if (map.containsKey(identifier)) {
+            idsOf(map).add(identifier);
+        } else {
+            idsOf(map).remove(identifier);
+        }
+    }
+
+    /*
+     *  Блокировки
+     */
+
+    // Изменение, которое может выполняться параллельно с другими
+    private <T> T shared(Supplier<T> change) {
+        return locked(transactionGate.readLock(), change);
+    }
+
+    // Изменение, которое выполняется без других изменений
+    private <T> T exclusive(Supplier<T> change) {
+        return locked(transactionGate.writeLock(), change);
+    }
+
+    private static <T> T locked(Lock lock, Supplier<T> change) {
+        lock.lock();
+        try {
+            return change.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Изменение под блокировкой эпика. Эпик ищется заново после получения блокировки,
+    // если его нет - изменение не выполняется и возвращается null
+    private <T> T withEpic(int epicIdentifier, Function<Epic, T> change) {
+        return shared(() -> {
+            Object lock = epicLocks.get(epicIdentifier);
+            if (lock == null) {
+                return null;
+            }
+            synchronized (lock) {
+                Epic epic = epicMap.get(epicIdentifier);
+                return epic != null ? change.apply(epic) : null;
+            }
+        });
+    }
+
+    // Добавление задачи в историю
+    private void addInHistory(Task task) {
+        historyManager.addInHistory(task);
+    }
+
+    // Получение идентификатора для следующей задачи
+    private int getNextId() {
+        return generatorId.getAndIncrement();
+    }
+
+    /*
+     *  Изменение таблиц с записью в журнал отмены транзакции
+     */
+
+    // Блокировка нового эпика появляется раньше самого эпика
+    private <T extends Task> void put(Map<Integer, T> map, int identifier, T task) {
+        remember(map, identifier);
+        if (map == epicMap) {
+            epicLocks.putIfAbsent(identifier, new Object());
+        }
+        if (map.put(identifier, task) == null) {
+            idsOf(map).add(identifier);
+        }
+    }
+
+    private <T extends Task> T remove(Map<Integer, T> map, int identifier) {
+        remember(map, identifier);
+        T task = map.remove(identifier);
+        if (task != null) {
+            idsOf(map).remove(identifier);
+        }
+        return task;
+    }
+
+    private <T extends Task> void clear(Map<Integer, T> map) {
+        if (transaction != null) {
+            for (int identifier : map.keySet()) {
+                remember(map, identifier);
+            }
+        }
+        map.clear();
+        idsOf(map).clear();
+    }
+
+    private Map<Integer, ? extends Task> mapOf(TaskType taskType) {
+        return switch (taskType) {
+            case TASK -> taskMap;
+            case EPIC -> epicMap;
+            case SUBTASK -> subtaskMap;
+        };
+    }
+
+    private NavigableSet<Integer> idsOf(Map<Integer, ? extends Task> map) {
+        if (map == taskMap) {
+            return taskIds;
+        } else if (map == epicMap) {
+            return epicIds;
+        }
+        return subtaskIds;
+    }
+
+    private <T extends Task> void remember(Map<Integer, T> map, int identifier) {
+        if (transaction == null) {
+            return;
+        }
+
+        TaskType taskType;
+        if (map == taskMap) {
+            taskType = TaskType.TASK;
+        } else if (map == epicMap) {
+            taskType = TaskType.EPIC;
+        } else {
+            taskType = TaskType.SUBTASK;
+        }
+        transaction.remember(taskType, identifier, map.get(identifier));
+    }
+
+    // Запоминание подзадач и статуса эпика перед первым изменением в транзакции
+    private void touch(Epic epic) {
+        if (transaction != null) {
+            transaction.touch(epic);
+        }
+    }
+
+    // В транзакции статус эпика пересчитывается один раз при фиксации
+    private void refreshEpicStatus(Epic epic) {
+        if (transaction != null) {
+            transaction.markStale(epic);
+        } else {
+            epic.refreshStatus();
+        }
+    }
+
+    // В транзакции задачи удаляются из истории только при фиксации
+    private void removeFromHistory(int identifier) {
+        if (transaction != null) {
+            transaction.removeFromHistory(identifier);
+        } else {
+            historyManager.removeFromHistory(identifier);
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package manager;
+
+import tasks.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Потоковый кодек строк CSV: разбор из CharSequence или ByteBuffer по смещениям и запись
+// прямо в Appendable или ByteBuffer. Поля не копируются в промежуточные строки и массивы,
+// новые строки создаются только для имени и описания самой задачи.
+// Поля с запятыми, кавычками и переводами строк заключаются в кавычки по RFC 4180. Строка без кавычек
+// просматривается один раз, разбор полей в кавычках выполняется только при встрече кавычки.
+// Экземпляр хранит буфер декодирования UTF-8 и не должен использоваться из нескольких потоков
+public final class CsvCodec {
+    private byte[] scratch = new byte[256]; // Буфер для декодирования строк UTF-8
+
+    // Разбор строки CSV в диапазоне [start, end) последовательности символов
+    public static <T extends Task> T decode(CharSequence line, int start, int end) {
+        if (indexOf(line, start, end, '"') < end) {
+            return decodeQuoted(line, start, end);
+        }
+
+        // Позиции запятых после каждого поля, end если запятой нет
+        int c0 = indexOf(line, start, end, ',');
+        int c1 = indexOf(line, c0 + 1, end, ',');
+        int c2 = indexOf(line, c1 + 1, end, ',');
+        int c3 = indexOf(line, c2 + 1, end, ',');
+        int c4 = indexOf(line, c3 + 1, end, ',');
+        int c5 = indexOf(line, c4 + 1, end, ',');
+        checkFields(c3, c4, end);
+
+        int id = parseInt(line, start, c0); // ID задачи
+        TaskType taskType = parseType(line, c0 + 1, c1); // Тип задачи
+        String taskName = line.subSequence(c1 + 1, c2).toString(); // Имя задачи
+        TaskStatus taskStatus = parseStatus(line, c2 + 1, c3); // Статус задачи
+        String taskDescription = line.subSequence(c3 + 1, c4).toString(); // Описание задачи
+
+        int epicId = 0; // ID эпика подзадачи
+        if (c4 < end && !isBlank(line, c4 + 1, c5)) {
+            epicId = parseInt(line, c4 + 1, c5);
+        }
+        return create(id, taskType, taskName, taskStatus, taskDescription, epicId);
+    }
+
+    // Разбор строки CSV в диапазоне [start, end) буфера с байтами UTF-8
+    public <T extends Task> T decode(ByteBuffer buffer, int start, int end) {
+        int c0 = indexOf(buffer, start, end);
+        int c1 = indexOf(buffer, c0 + 1, end);
+        int c2 = indexOf(buffer, c1 + 1, end);
+        int c3 = indexOf(buffer, c2 + 1, end);
+        int c4 = indexOf(buffer, c3 + 1, end);
+        int c5 = indexOf(buffer, c4 + 1, end);
+        if (c5 < end && buffer.get(c5) == '"' || isQuote(buffer, c0, c1, c2, c3, c4, end)) {
+            // Строки с кавычками редки: строка декодируется целиком и разбирается медленным путем
+            String line = decodeString(buffer, start, end);
+            return decodeQuoted(line, 0, line.length());
+        }
+        checkFields(c3, c4, end);
+
+        int id = parseInt(buffer, start, c0); // ID задачи
+        TaskType taskType = parseType(buffer, c0 + 1, c1); // Тип задачи
+        String taskName = decodeString(buffer, c1 + 1, c2); // Имя задачи
+        TaskStatus taskStatus = parseStatus(buffer, c2 + 1, c3); // Статус задачи
+        String taskDescription = decodeString(buffer, c3 + 1, c4); // Описание задачи
+
+        int epicId = 0; // ID эпика подзадачи
+        if (c4 < end && !isBlank(buffer, c4 + 1, c5)) {
+            epicId = parseInt(buffer, c4 + 1, c5);
+        }
+        return create(id, taskType, taskName, taskStatus, taskDescription, epicId);
+    }
+
+    // Запись строки CSV задачи без перевода строки
+    public static void encode(Task task, Appendable output) throws IOException {
+        if (task == null) {
+            throw new IllegalArgumentException("На вход метода encode передан null");
+        }
+
+        appendInt(output, task.getTaskId());
+        output.append(',').append(typeOf(task).name()).append(',');
+        appendField(output, task.getTaskName());
+        output.append(',').append(task.getTaskStatus().name()).append(',');
+        appendField(output, task.getTaskDescription());
+        output.append(',');
+        if (task instanceof Subtask subtask) {
+            appendInt(output, subtask.getEpicIdentifier());
+        }
+    }
+
+    // Запись строки CSV задачи в кодировке UTF-8. При нехватке места выбрасывается BufferOverflowException
+    public static void encode(Task task, ByteBuffer output) {
+        if (task == null) {
+            throw new IllegalArgumentException("На вход метода encode передан null");
+        }
+
+        putInt(output, task.getTaskId());
+        output.put((byte) ',');
+        putUtf8(output, typeOf(task).name());
+        output.put((byte) ',');
+        putField(output, task.getTaskName());
+        output.put((byte) ',');
+        putUtf8(output, task.getTaskStatus().name());
+        output.put((byte) ',');
+        putField(output, task.getTaskDescription());
+        output.put((byte) ',');
+        if (task instanceof Subtask subtask) {
+            putInt(output, subtask.getEpicIdentifier());
+        }
+    }
+
+    // Поле в кавычках нужно, только если в нем есть запятая, кавычка или перевод строки
+    private static boolean needsQuotes(CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void appendField(Appendable output, CharSequence value) throws IOException {
+        if (!needsQuotes(value)) {
+            output.append(value);
+            return;
+        }
+
+        output.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                output.append('"');
+            }
+            output.append(c);
+        }
+        output.append('"');
+    }
+
+    private static void putField(ByteBuffer output, CharSequence value) {
+        if (!needsQuotes(value)) {
+            putUtf8(output, value, false);
+            return;
+        }
+
+        output.put((byte) '"');
+        putUtf8(output, value, true);
+        output.put((byte) '"');
+    }
+
+    // Запись последовательности символов в кодировке UTF-8, null записывается как "null"
+    static void putUtf8(ByteBuffer output, CharSequence value) {
+        putUtf8(output, value, false);
+    }
+
+    private static void putUtf8(ByteBuffer output, CharSequence value, boolean isQuoted) {
+        if (value == null) {
+            value = "null";
+        }
+
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' && isQuoted) {
+                    output.put((byte) '"'); // Кавычка внутри поля удваивается
+                }
+                output.put((byte) c);
+            } else if (c < 0x800) {
+                output.put((byte) (0xC0 | c >> 6));
+                output.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                output.put((byte) (0xF0 | codePoint >> 18));
+                output.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                output.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                output.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                output.put((byte) '?'); // Одиночный суррогат, как при String.getBytes
+            } else {
+                output.put((byte) (0xE0 | c >> 12));
+                output.put((byte) (0x80 | c >> 6 & 0x3F));
+                output.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    // Длина последовательности символов в кодировке UTF-8
+    static int utf8Length(CharSequence value) {
+        if (value == null) {
+            return 4;
+        }
+
+        int length = value.length();
+        int result = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x800) {
+                if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    i++;
+                    result += 2; // 4 байта на 2 символа
+                } else if (!Character.isSurrogate(c)) {
+                    result += 2;
+                }
+            } else if (c >= 0x80) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    // Как и при String.split, пустые поля в конце строки не считаются: нужно не меньше пяти полей.
+    // Строка со всеми шестью полями допускает пустое описание
+    private static void checkFields(int c3, int c4, int end) {
+        if (c4 == end && c3 + 1 >= end) {
+            throw new IllegalArgumentException("Неверный формат строки данных");
+        }
+    }
+
+    // Для String используется встроенный поиск символа, остальные последовательности просматриваются по символу
+    private static int indexOf(CharSequence line, int start, int end, char value) {
+        if (line instanceof String string) {
+            int index = start < end ? string.indexOf(value, start, end) : -1;
+            return index < 0 ? end : index;
+        }
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) == value) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    // Позиция следующей запятой или кавычки в байтах. Кавычка переводит разбор на медленный путь
+    private static int indexOf(ByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == ',' || b == '"') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isQuote(ByteBuffer buffer, int c0, int c1, int c2, int c3, int c4, int end) {
+        return c0 < end && buffer.get(c0) == '"' || c1 < end && buffer.get(c1) == '"'
+                || c2 < end && buffer.get(c2) == '"' || c3 < end && buffer.get(c3) == '"'
+                || c4 < end && buffer.get(c4) == '"';
+    }
+
+    // Медленный путь: разбор полей с кавычками, удвоенная кавычка внутри поля означает одну кавычку
+    private static <T extends Task> T decodeQuoted(CharSequence line, int start, int end) {
+        String[] fields = new String[6];
+        int fieldCount = 0;
+        int lastFilled = -1;
+        int position = start;
+
+        while (fieldCount < fields.length) {
+            StringBuilder field = new StringBuilder();
+            if (position < end && line.charAt(position) == '"') {
+                position++;
+                while (true) {
+                    if (position >= end) {
+                        throw new IllegalArgumentException("Незакрытая кавычка в строке данных");
+                    }
+                    char c = line.charAt(position++);
+                    if (c == '"') {
+                        if (position < end && line.charAt(position) == '"') {
+                            position++;
+                        } else {
+                            break;
+                        }
+                    }
+                    field.append(c);
+                }
+                if (position < end && line.charAt(position) != ',') {
+                    throw new IllegalArgumentException("Неверный формат строки данных");
+                }
+                lastFilled = fieldCount; // Пустое поле в кавычках считается заполненным
+            } else {
+                // Кавычка внутри поля без кавычек считается обычным символом
+                while (position < end && line.charAt(position) != ',') {
+                    field.append(line.charAt(position++));
+                }
+                if (!field.isEmpty()) {
+                    lastFilled = fieldCount;
+                }
+            }
+
+            fields[fieldCount++] = field.toString();
+            if (position >= end) {
+                break;
+            }
+            position++; // Запятая
+        }
+
+        if (fieldCount < fields.length && lastFilled < 4) {
+            throw new IllegalArgumentException("Неверный формат строки данных");
+        }
+
+        int id = parseInt(fields[0], 0, fields[0].length()); // ID задачи
+        TaskType taskType = parseType(fields[1], 0, fields[1].length()); // Тип задачи
+        TaskStatus taskStatus = parseStatus(fields[3], 0, fields[3].length()); // Статус задачи
+
+        int epicId = 0; // ID эпика подзадачи
+        if (fieldCount == fields.length && !fields[5].isBlank()) {
+            epicId = parseInt(fields[5], 0, fields[5].length());
+        }
+        return create(id, taskType, fields[2], taskStatus, fields[4], epicId);
+    }
+
+    // Конец записи, начинающейся с start: перевод строки вне кавычек или end
+    static int recordEnd(CharSequence content, int start, int end) {
+        boolean isQuoted = false;
+        for (int i = start; i < end; i++) {
+            char c = content.charAt(i);
+            if (c == '"') {
+                isQuoted = !isQuoted;
+            } else if (c == '\n' && !isQuoted) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    static int recordEnd(ByteBuffer buffer, int start, int end) {
+        boolean isQuoted = false;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
+                isQuoted = !isQuoted;
+            } else if (b == '\n' && !isQuoted) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Task> T create(int id, TaskType taskType, String taskName, TaskStatus taskStatus,
+                                             String taskDescription, int epicId) {
+        return switch (taskType) {
+            case SUBTASK -> {
+                Subtask subtask = new Subtask(id, taskName, taskDescription, taskStatus);
+                if (epicId != 0) {
+                    subtask.setEpicIdentifier(epicId);
+                }
+                yield (T) subtask;
+            }
+            case EPIC -> {
+                Epic epic = new Epic(id, taskName, taskDescription);
+                epic.setTaskStatus(taskStatus);
+                yield (T) epic;
+            }
+            case TASK -> (T) new Task(id, taskName, taskDescription, taskStatus);
+        };
+    }
+
+    private static TaskType typeOf(Task task) {
+        if (task instanceof Subtask) {
+            return TaskType.SUBTASK;
+        } else if (task instanceof Epic) {
+            return TaskType.EPIC;
+        }
+        return TaskType.TASK;
+    }
+
+    // Кандидат выбирается по длине и первому символу, затем имя сверяется без учета регистра
+    private static TaskType typeCandidate(int length, int first) {
+        return switch (length) {
+            case 4 -> (first | 0x20) == 't' ? TaskType.TASK : (first | 0x20) == 'e' ? TaskType.EPIC : null;
+            case 7 -> TaskType.SUBTASK;
+            default -> null;
+        };
+    }
+
+    private static TaskStatus statusCandidate(int length) {
+        return switch (length) {
+            case 3 -> TaskStatus.NEW;
+            case 4 -> TaskStatus.DONE;
+            case 11 -> TaskStatus.IN_PROGRESS;
+            default -> null;
+        };
+    }
+
+    private static TaskType parseType(CharSequence line, int start, int end) {
+        TaskType type = end > start ? typeCandidate(end - start, line.charAt(start)) : null;
+        if (type == null || !equalsIgnoreCase(line, start, type.name())) {
+            throw new IllegalArgumentException("Неизвестный тип задачи");
+        }
+        return type;
+    }
+
+    private static TaskType parseType(ByteBuffer buffer, int start, int end) {
+        TaskType type = end > start ? typeCandidate(end - start, buffer.get(start)) : null;
+        if (type == null || !equalsIgnoreCase(buffer, start, type.name())) {
+            throw new IllegalArgumentException("Неизвестный тип задачи");
+        }
+        return type;
+    }
+
+    private static TaskStatus parseStatus(CharSequence line, int start, int end) {
+        TaskStatus status = statusCandidate(end - start);
+        if (status == null || !equalsIgnoreCase(line, start, status.name())) {
+            throw new IllegalArgumentException("Неизвестный статус задачи");
+        }
+        return status;
+    }
+
+    private static TaskStatus parseStatus(ByteBuffer buffer, int start, int end) {
+        TaskStatus status = statusCandidate(end - start);
+        if (status == null || !equalsIgnoreCase(buffer, start, status.name())) {
+            throw new IllegalArgumentException("Неизвестный статус задачи");
+        }
+        return status;
+    }
+
+    // Сравнение с именем константы из заглавных латинских букв и '_'
+    private static boolean equalsIgnoreCase(CharSequence line, int start, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = line.charAt(start + i);
+            if (c >= 'a' && c <= 'z') {
+                c -= 'a' - 'A';
+            }
+            if (c != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(ByteBuffer buffer, int start, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            byte b = buffer.get(start + i);
+            if (b >= 'a' && b <= 'z') {
+                b -= 'a' - 'A';
+            }
+            if (b != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int parseInt(CharSequence line, int start, int end) {
+        return Integer.parseInt(line, start, end, 10);
+    }
+
+    private static int parseInt(ByteBuffer buffer, int start, int end) {
+        boolean isNegative = end > start && buffer.get(start) == '-';
+        int i = end > start && (isNegative || buffer.get(start) == '+') ? start + 1 : start;
+        if (i == end) {
+            throw new NumberFormatException("Пустое число в строке данных");
+        }
+
+        // Накопление в отрицательную сторону, чтобы поместилось Integer.MIN_VALUE
+        int result = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Неверное число в строке данных");
+            }
+            result = Math.subtractExact(Math.multiplyExact(result, 10), digit);
+        }
+        return isNegative ? result : Math.negateExact(result);
+    }
+
+    private static boolean isBlank(CharSequence line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(buffer.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decodeString(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Запись числа по цифрам, без промежуточной строки
+    private static void appendInt(Appendable output, int value) throws IOException {
+        if (value < 0) {
+            output.append('-');
+        }
+        long remaining = Math.abs((long) value);
+        long divisor = 1;
+        while (divisor * 10 <= remaining) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            output.append((char) ('0' + remaining / divisor % 10));
+        }
+    }
+
+    private static void putInt(ByteBuffer output, int value) {
+        if (value < 0) {
+            output.put((byte) '-');
+        }
+        long remaining = Math.abs((long) value);
+        long divisor = 1;
+        while (divisor * 10 <= remaining) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            output.put((byte) ('0' + remaining / divisor % 10));
+        }
+    }
+}
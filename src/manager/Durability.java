@@ -0,0 +1,8 @@
+package manager;
+
+// Гарантии сохранности записей на диске
+public enum Durability {
+    BUFFERED,      // Данные остаются в буферах ОС, fsync не выполняется
+    PER_OPERATION, // fsync после каждого изменения
+    GROUP_COMMIT   // Один fsync на группу изменений, вызывающий поток ждет записи своей группы
+}
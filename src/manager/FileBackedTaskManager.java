@@ -3,177 +3,844 @@ package manager;
 import tasks.*;
 
 import java.io.*;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
-import java.util.HashMap;
-import java.util.Map;
-
-public class FileBackedTaskManager extends InMemoryTaskManager {
+import java.nio.file.StandardCopyOption;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
     private final File file;
+    private final StorageSettings settings;
+    private final TaskJournal journal; // Журнал изменений, null в режиме полной перезаписи файла
+    private final boolean isWriteBehind; // Журнал пишется отдельным потоком через очередь отложенной записи
+    // Очередь отложенной записи создается при первом изменении под writeLock, а не в конструкторе:
+    // поток записи вызывает методы менеджера и не должен получить его до конца конструирования.
+    // null при записи в вызывающем потоке и до первого изменения
+    private volatile WriteBehindQueue writeBehind;
+    private boolean isSnapshotWritten; // Файл уже содержит состояние этого менеджера
+    private final ThreadPoolExecutor compactor; // Фоновый поток сжатия журнала
+    private final AtomicReference<Future<?>> compaction = new AtomicReference<>(); // Последнее запущенное сжатие
+    // Ошибка сжатия, замеченная при записи, выбрасывается из следующего awaitCompaction
+    private final AtomicReference<ManagerSaveException> compactionFailure = new AtomicReference<>();
+    private volatile boolean isCompactionRequested; // Поток отложенной записи просит снять состояние для сжатия
+    private volatile boolean isCompactionQueued;    // Снятое состояние ждет в очереди отложенной записи
+    private final Object writeLock = new Object(); // Изменения и запись на диск выполняются по очереди
+    // Закодированные строки задач для полной перезаписи файла. Изменённые ID удаляются из кэша
+    // и кодируются заново при следующем сохранении, остальные строки пишутся из кэша как есть
+    private final Map<Integer, byte[]> encodedRows = new HashMap<>();
+    private ByteBuffer encodeBuffer = ByteBuffer.allocate(256);
+    // Отложенные записи изменений транзакции, null вне inTransaction.
+    // Записи строятся при фиксации, когда статусы эпиков уже пересчитаны
+    private List<Supplier<List<String>>> transactionRecords;
 
     public FileBackedTaskManager(File file) {
+        this(file, StorageSettings.snapshot());
+    }
+
+    public FileBackedTaskManager(File file, StorageSettings settings) {
         this.file = file;
+        this.settings = settings.copy();
+        this.journal = settings.isJournaled() ? new TaskJournal(file, this.settings) : null;
+        this.compactor = newCompactor(file);
+        this.isWriteBehind = checkWriteBehind();
     }
 
-    private FileBackedTaskManager(Map<Integer, Task> tasks, Map<Integer, Epic> epics,
-                                  Map<Integer, Subtask> subtasks, int id, File file) {
+    private FileBackedTaskManager(IntObjectMap<Task> tasks, IntObjectMap<Epic> epics,
+                                  IntObjectMap<Subtask> subtasks, int id, File file,
+                                  StorageSettings settings, TaskJournal journal) {
         super(tasks, epics, subtasks, id);
         this.file = file;
+        this.settings = settings.copy();
+        this.journal = settings.isJournaled() ? journal : null;
+        // В режиме журнала изменения дописываются к прочитанному журналу. В режиме полной перезаписи
+        // состояние собрано из файла и журнала, поэтому первое сохранение удалит журнал
+        this.isSnapshotWritten = settings.isJournaled();
+        this.compactor = newCompactor(file);
+        this.isWriteBehind = checkWriteBehind();
     }
 
-    public static FileBackedTaskManager loadFromFile(File file) {
-        int maxId = -1;
-        // Наполнение данными из файла
-        try {
-            String resString = Files.readString(file.toPath());
-
-            if (resString.isEmpty()) {
-                return new FileBackedTaskManager(file);
-            }
-
-            Map<Integer, Task> tasks = new HashMap<>();
-            Map<Integer, Epic> epics = new HashMap<>();
-            Map<Integer, Subtask> subtasks = new HashMap<>();
+    private boolean checkWriteBehind() {
+        if (settings.getWriteBehindCapacity() == 0) {
+            return false;
+        }
+        if (journal == null) {
+            throw new IllegalArgumentException("Отложенная запись поддерживается только в режиме журнала");
+        }
+        return true;
+    }
 
-            String[] lines = resString.split(System.lineSeparator());
+    // Очередь отложенной записи, вызывается под writeLock
+    private WriteBehindQueue writeBehind() {
+        if (writeBehind == null) {
+            writeBehind = new WriteBehindQueue(settings.getWriteBehindCapacity(), file.getName(),
+                    this::writeBehindBatch);
+        }
+        return writeBehind;
+    }
 
-            // Сначала создаем все задачи, сохраняя оригинальные ID
-            for (int i = 1; i < lines.length; i++) {
-                Task task = CSVFormatter.fromString(lines[i]);
-                maxId = Math.max(task.getTaskId(), maxId);
+    private static ThreadPoolExecutor newCompactor(File file) {
+        ThreadPoolExecutor compactor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "journal-compactor-" + file.getName());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        compactor.allowCoreThreadTimeOut(true);
+        return compactor;
+    }
 
-                if (task instanceof Epic epic) {
-                    epics.put(epic.getTaskId(), epic);
-                } else if (task instanceof Subtask subtask) {
-                    subtasks.put(subtask.getTaskId(), subtask);
-                } else {
-                    tasks.put(task.getTaskId(), task);
-                }
-            }
+    public static FileBackedTaskManager loadFromFile(File file) {
+        return loadFromFile(file, StorageSettings.snapshot());
+    }
 
-            // Второй проход: добавляем подзадачи
-            for (Subtask subtask : subtasks.values()) {
-                int epicId = subtask.getEpicIdentifier();
-                Epic epic = epics.get(epicId);
-                epic.addSubtask(subtask);
-            }
+    // Загрузка последнего снимка и повторное применение журнала изменений
+    public static FileBackedTaskManager loadFromFile(File file, StorageSettings settings) {
+        RestoredState state;
+        TaskJournal journal = new TaskJournal(file, settings);
+        // Наполнение данными из файла
+        try {
+            // Сначала создаем все задачи, сохраняя оригинальные ID.
+            // Файл читается через отображение в память, формат определяется по сигнатуре в начале файла.
+            // Куски файла разбираются параллельно в отдельные таблицы, которые затем объединяются по порядку
+            state = RestoredState.merge(new MappedTaskReader().readChunks(file, RestoredState::new));
 
-            return new FileBackedTaskManager(tasks, epics, subtasks, maxId + 1, file);
+            journal.replay(state);
 
         } catch (IOException e) {
             System.out.println("Ошибка при чтении файла: " + e.getMessage());
             throw new UncheckedIOException(e);
         }
 
+        // Второй проход: добавляем подзадачи
+        state.linkSubtasks();
+
+        return new FileBackedTaskManager(state.tasks, state.epics, state.subtasks, state.maxId + 1, file,
+                settings, journal);
     }
 
     // Задачи
 
     @Override
     public void createNewTask(Task task) {
-        super.createNewTask(task);
-        save();
+        persistAfter(() -> {
+            super.createNewTask(task);
+            return task;
+        }, result -> List.of(TaskJournal.upsert(result)));
     }
 
     @Override
     public void deleteAllTasks() {
-        super.deleteAllTasks();
-        save();
+        persistAfter(() -> {
+            super.deleteAllTasks();
+            return null;
+        }, result -> List.of(TaskJournal.clear(TaskType.TASK)));
     }
 
     @Override
     public Task updateTask(Task task) {
-        Task result = super.updateTask(task);
-        save();
-        return result;
+        return persistAfter(() -> super.updateTask(task),
+                result -> result != null ? List.of(TaskJournal.upsert(result)) : List.of());
     }
 
     @Override
     public Task deleteTaskById(int id) {
-        Task result = super.deleteTaskById(id);
-        save();
-        return result;
+        return persistAfter(() -> super.deleteTaskById(id),
+                result -> result != null ? List.of(TaskJournal.delete(id)) : List.of());
     }
 
     // Эпики
 
     @Override
     public void createNewEpic(Epic epic) {
-        super.createNewEpic(epic);
-        save();
+        persistAfter(() -> {
+            super.createNewEpic(epic);
+            return epic;
+        }, result -> List.of(TaskJournal.upsert(result)));
     }
 
     @Override
     public void deleteAllEpics() {
-        super.deleteAllEpics();
-        save();
+        persistAfter(() -> {
+            super.deleteAllEpics();
+            return null;
+        }, result -> List.of(TaskJournal.clear(TaskType.EPIC)));
     }
 
     @Override
     public Epic updateEpic(Epic epic) {
-        Epic result = super.updateEpic(epic);
-        save();
-        return result;
+        return persistAfter(() -> super.updateEpic(epic),
+                result -> result != null ? List.of(TaskJournal.upsert(result)) : List.of());
     }
 
     @Override
     public Epic deleteEpicById(int id) {
-        Epic result = super.deleteEpicById(id);
-        save();
-        return result;
+        // Подзадачи удаленного эпика отбрасываются при восстановлении
+        return persistAfter(() -> super.deleteEpicById(id),
+                result -> result != null ? List.of(TaskJournal.delete(id)) : List.of());
     }
 
     // Подзадачи
 
     @Override
     public void createNewSubtask(Epic epic, Subtask subtask) {
-        super.createNewSubtask(epic, subtask);
-        save();
+        persistAfter(() -> {
+            int previousId = subtask.getTaskId(); // Созданная подзадача получает новый ID
+            super.createNewSubtask(epic, subtask);
+            return subtask.getTaskId() != previousId;
+        }, isCreated -> isCreated ? subtaskRecords(TaskJournal.upsert(subtask), subtask) : List.of());
     }
 
     @Override
     public void deleteAllSubtasks() {
-        super.deleteAllSubtasks();
-        save();
+        persistAfter(() -> {
+            super.deleteAllSubtasks();
+            return getEpics();
+        }, epics -> {
+            List<String> records = new ArrayList<>(epics.size() + 1);
+            records.add(TaskJournal.clear(TaskType.SUBTASK));
+            for (Epic epic : epics) {
+                records.add(TaskJournal.upsert(epic)); // Статусы эпиков пересчитаны
+            }
+            return records;
+        });
     }
 
     @Override
     public Subtask updateSubtask(Subtask subtask) {
-        Subtask result = super.updateSubtask(subtask);
-        save();
-        return result;
+        return persistAfter(() -> super.updateSubtask(subtask),
+                result -> result != null ? subtaskRecords(TaskJournal.upsert(result), result) : List.of());
     }
 
     @Override
     public Subtask deleteSubtaskById(int id) {
-        Subtask result = super.deleteSubtaskById(id);
-        save();
+        return persistAfter(() -> super.deleteSubtaskById(id),
+                result -> result != null ? subtaskRecords(TaskJournal.delete(id), result) : List.of());
+    }
+
+    // Статусы эпиков могли измениться, поэтому сохраняются все эпики
+    @Override
+    public int repairEpicStatuses() {
+        return persistAfter(super::repairEpicStatuses, repaired -> upsertRecords(getEpics()));
+    }
+
+    // Массовые операции: изменения выполняются одной транзакцией и сохраняются одной пачкой записей
+
+    @Override
+    public void createNewTasks(Collection<? extends Task> tasks) {
+        persistAfter(() -> {
+            super.createNewTasks(tasks);
+            return tasks;
+        }, FileBackedTaskManager::upsertRecords);
+    }
+
+    @Override
+    public void createNewEpics(Collection<Epic> epics) {
+        persistAfter(() -> {
+            super.createNewEpics(epics);
+            return epics;
+        }, FileBackedTaskManager::upsertRecords);
+    }
+
+    // Массовое создание подзадач: в журнал попадают только созданные
+    @Override
+    protected List<Subtask> createSubtasks(Epic epic, Collection<Subtask> subtasks) {
+        return persistAfter(() -> super.createSubtasks(epic, subtasks), created -> {
+            if (created.isEmpty()) {
+                return List.of();
+            }
+            List<String> records = upsertRecords(created);
+            records.add(TaskJournal.upsert(epic));
+            return records;
+        });
+    }
+
+    @Override
+    public List<Task> updateTasks(Collection<? extends Task> tasks) {
+        return persistAfter(() -> super.updateTasks(tasks), FileBackedTaskManager::upsertRecords);
+    }
+
+    @Override
+    public List<Subtask> updateSubtasks(Collection<Subtask> subtasks) {
+        return persistAfter(() -> super.updateSubtasks(subtasks), updated -> {
+            List<String> records = upsertRecords(updated);
+            records.addAll(epicRecords(updated));
+            return records;
+        });
+    }
+
+    @Override
+    public List<Task> deleteByIds(int[] identifiers) {
+        // Подзадачи удаленных эпиков отбрасываются при восстановлении
+        return persistAfter(() -> super.deleteByIds(identifiers), deleted -> {
+            List<String> records = new ArrayList<>(deleted.size());
+            List<Subtask> subtasks = new ArrayList<>();
+            for (Task task : deleted) {
+                records.add(TaskJournal.delete(task.getTaskId()));
+                if (task instanceof Subtask subtask) {
+                    subtasks.add(subtask);
+                }
+            }
+            records.addAll(epicRecords(subtasks));
+            return records;
+        });
+    }
+
+    private static List<String> upsertRecords(Collection<? extends Task> tasks) {
+        List<String> records = new ArrayList<>(tasks.size() + 1);
+        for (Task task : tasks) {
+            records.add(TaskJournal.upsert(task));
+        }
+        return records;
+    }
+
+    // Записи с новым состоянием каждого эпика затронутых подзадач, по одной на эпик
+    private List<String> epicRecords(Collection<Subtask> subtasks) {
+        Set<Integer> epicIds = new LinkedHashSet<>();
+        for (Subtask subtask : subtasks) {
+            epicIds.add(subtask.getEpicIdentifier());
+        }
+
+        List<String> records = new ArrayList<>(epicIds.size());
+        for (int epicId : epicIds) {
+            Epic epic = findEpic(epicId);
+            if (epic != null) {
+                records.add(TaskJournal.upsert(epic));
+            }
+        }
+        return records;
+    }
+
+    // Запись снимка текущего состояния и очистка журнала
+    public void checkpoint() {
+        synchronized (writeLock) {
+            flush();
+            awaitCompaction();
+            try {
+                writeSnapshotFile(getTasks(), getEpics(), getSubtasks());
+
+                if (journal != null) {
+                    journal.reset();
+                } else {
+                    new TaskJournal(file).delete();
+                }
+                isSnapshotWritten = true;
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка сохранения в файл " + file.getName(), e);
+            }
+        }
+    }
+
+    // Ожидание записи всех изменений из очереди отложенной записи
+    public void flush() {
+        WriteBehindQueue queue = writeBehind;
+        if (queue == null) {
+            return;
+        }
+        try {
+            queue.flush();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка отложенной записи в журнал " + journal.getFile().getName(), e);
+        }
+    }
+
+    // Запись очереди, ожидание фонового сжатия и закрытие журнала.
+    // Журнал закрывается и при ошибке записи или сжатия, первая ошибка выбрасывается после закрытия
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            ManagerSaveException failure = null;
+            try {
+                if (writeBehind != null) {
+                    writeBehind.close();
+                }
+                awaitCompaction();
+            } catch (IOException e) {
+                failure = new ManagerSaveException(
+                        "Ошибка отложенной записи в журнал " + journal.getFile().getName(), e);
+            } catch (ManagerSaveException e) {
+                failure = e;
+            } finally {
+                compactor.shutdown();
+            }
+
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    ManagerSaveException closeFailure =
+                            new ManagerSaveException("Ошибка закрытия журнала " + journal.getFile().getName(), e);
+                    if (failure == null) {
+                        failure = closeFailure;
+                    } else {
+                        failure.addSuppressed(closeFailure);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    // Ожидание завершения запущенного сжатия журнала и выброс ошибки прежнего сжатия, если она была
+    public void awaitCompaction() {
+        Future<?> current = compaction.get();
+        if (current != null) {
+            try {
+                current.get();
+            } catch (ExecutionException e) {
+                throw new ManagerSaveException("Ошибка фонового сжатия журнала " + file.getName(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManagerSaveException("Ожидание сжатия журнала прервано", e);
+            } finally {
+                compaction.compareAndSet(current, null);
+            }
+        }
+
+        ManagerSaveException failure = compactionFailure.getAndSet(null);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Записи об изменении подзадачи вместе с новым состоянием её эпика
+    private List<String> subtaskRecords(String record, Subtask subtask) {
+        Epic epic = findEpic(subtask.getEpicIdentifier());
+        return epic != null ? List.of(record, TaskJournal.upsert(epic)) : List.of(record);
+    }
+
+    // Транзакция держит блокировку записи до фиксации и сохраняется на диск одной пачкой записей
+    @Override
+    public void inTransaction(Consumer<TaskManager> changes) {
+        persistAfter(() -> {
+            if (transactionRecords != null) {
+                super.inTransaction(changes); // Вложенная транзакция
+                return List.<Supplier<List<String>>>of();
+            }
+
+            transactionRecords = new ArrayList<>();
+            try {
+                super.inTransaction(changes);
+                return transactionRecords;
+            } finally {
+                transactionRecords = null;
+            }
+        }, suppliers -> {
+            List<String> records = new ArrayList<>();
+            for (Supplier<List<String>> supplier : suppliers) {
+                records.addAll(supplier.get());
+            }
+            return records;
+        });
+    }
+
+    // Изменение состояния и запись на диск выполняются под блокировкой,
+    // а ожидание fsync группы при GROUP_COMMIT - уже после её снятия
+    private <T> T persistAfter(Supplier<T> change, Function<T, List<String>> records) {
+        T result;
+        long sequence;
+        synchronized (writeLock) {
+            result = change.get();
+            if (transactionRecords != null) {
+                transactionRecords.add(() -> records.apply(result));
+                return result;
+            }
+            sequence = persist(records.apply(result));
+        }
+
+        if (sequence != 0) {
+            try {
+                journal.awaitDurable(sequence);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка записи в журнал " + journal.getFile().getName(), e);
+            }
+        }
         return result;
     }
 
-    // Сохранение изменений в файл
-    private void save() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+    // Сохранение изменений: запись в журнал или полная перезапись файла
+    private long persist(List<String> records) {
+        if (journal == null) {
+            invalidateEncodedRows(records);
+            save();
+            return 0;
+        }
 
-            writer.write(CSVFormatter.getHeader()); // заголовок
-            writer.newLine();
+        // Первое изменение нового менеджера записывает снимок, который уже содержит это изменение
+        if (!isSnapshotWritten) {
+            checkpoint();
+            return 0;
+        }
 
-            for (Task task : getTasks()) {
-                writer.write(CSVFormatter.toString(task));
-                writer.newLine();
+        try {
+            if (isWriteBehind) {
+                writeBehind().offer(records);
+                queueCompactionIfRequested();
+                return 0;
             }
 
-            for (Epic epic : getEpics()) {
-                writer.write(CSVFormatter.toString(epic));
-                writer.newLine();
+            long sequence = journal.append(records);
+            if (isCompactionDue()) {
+                // Точка согласованности: дальнейшие записи идут в новый файл журнала,
+                // а снимок строится по копиям списков, снятым до следующего изменения
+                startCompaction(journal.rotate(), getTasks(), getEpics(), getSubtasks());
+            }
+            return sequence;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи в журнал " + journal.getFile().getName(), e);
+        }
+    }
+
+    // Запись пачки из очереди отложенной записи, выполняется в потоке записи
+    private void writeBehindBatch(List<String> records) throws IOException {
+        journal.awaitDurable(journal.append(records));
+
+        if (!isCompactionQueued && isCompactionDue()) {
+            isCompactionRequested = true;
+        }
+    }
+
+    // Состояние для сжатия снимается в вызывающем потоке под блокировкой записи,
+    // а поворот журнала выполняется в потоке записи ровно после всех предшествующих записей
+    private void queueCompactionIfRequested() throws IOException {
+        if (!isCompactionRequested) {
+            return;
+        }
+        isCompactionRequested = false;
+        isCompactionQueued = true;
+
+        List<Task> tasks = getTasks();
+        List<Epic> epics = getEpics();
+        List<Subtask> subtasks = getSubtasks();
+        writeBehind.offer(() -> {
+            startCompaction(journal.rotate(), tasks, epics, subtasks);
+            isCompactionQueued = false;
+        });
+    }
+
+    // Журнал превысил пороги из настроек и предыдущее сжатие завершено
+    private boolean isCompactionDue() {
+        Future<?> current = compaction.get();
+        if (current != null) {
+            if (!current.isDone()) {
+                return false;
+            }
+            try {
+                awaitCompaction(); // Уже завершено, ожидания нет
+            } catch (ManagerSaveException e) {
+                // Сегменты неудачного сжатия остаются на диске и войдут в следующий снимок,
+                // а ошибка сохраняется до следующего checkpoint, close или awaitCompaction
+                if (!compactionFailure.compareAndSet(null, e)) {
+                    compactionFailure.get().addSuppressed(e);
+                }
             }
+        }
+        return journal.isCompactionDue(settings);
+    }
+
+    private void startCompaction(int segment, List<Task> tasks, List<Epic> epics, List<Subtask> subtasks) {
+        compaction.set(compactor.submit(() -> {
+            writeSnapshotFile(tasks, epics, subtasks);
+            journal.deleteSegmentsUpTo(segment);
+            return null;
+        }));
+    }
+
+    // Атомарная замена основного файла: снимок пишется во временный файл и переименовывается
+    private void writeSnapshotFile(List<Task> tasks, List<Epic> epics, List<Subtask> subtasks) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        writeSnapshot(tempFile, tasks, epics, subtasks);
+        Files.move(tempFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
 
-            for (Subtask subtask : getSubtasks()) {
-                writer.write(CSVFormatter.toString(subtask));
-                writer.newLine();
+    // Записи журнала изменения указывают, какие строки кэша устарели
+    private void invalidateEncodedRows(List<String> records) {
+        for (String record : records) {
+            int key = TaskJournal.recordKey(record);
+            if (key < 0) {
+                encodedRows.clear(); // Удаление всех задач одного типа
+                return;
             }
+            encodedRows.remove(key);
+        }
+    }
 
+    // Сохранение изменений в файл: заново кодируются только изменённые задачи
+    private void save() {
+        try {
+            writeCachedSnapshot();
+
+            // Журнал от прежнего состояния файла больше не относится к этому снимку
+            if (!isSnapshotWritten) {
+                new TaskJournal(file).delete();
+                isSnapshotWritten = true;
+            }
         } catch (IOException e) {
             throw new ManagerSaveException("Ошибка сохранения в файл " + file.getName(), e);
         }
     }
+
+    private void writeCachedSnapshot() throws IOException {
+        List<Task> tasks = getTasks();
+        List<Epic> epics = getEpics();
+        List<Subtask> subtasks = getSubtasks();
+        int count = tasks.size() + epics.size() + subtasks.size();
+
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            BufferedOutputStream stream = new BufferedOutputStream(output, 1 << 16);
+            if (settings.getSnapshotFormat() == SnapshotFormat.BINARY) {
+                BinaryFormatter.writeHeader(stream, count);
+            } else {
+                stream.write((CSVFormatter.getHeader() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+
+            for (Task task : tasks) {
+                stream.write(encodedRow(task));
+            }
+            for (Epic epic : epics) {
+                stream.write(encodedRow(epic));
+            }
+            for (Subtask subtask : subtasks) {
+                stream.write(encodedRow(subtask));
+            }
+            stream.flush();
+
+            if (settings.getDurability() != Durability.BUFFERED) {
+                output.getFD().sync();
+            }
+        }
+
+        // Строки задач, удаленных без отдельной записи (подзадачи удаленного эпика)
+        if (encodedRows.size() > count) {
+            Set<Integer> identifiers = new HashSet<>(count);
+            tasks.forEach(task -> identifiers.add(task.getTaskId()));
+            epics.forEach(epic -> identifiers.add(epic.getTaskId()));
+            subtasks.forEach(subtask -> identifiers.add(subtask.getTaskId()));
+            encodedRows.keySet().retainAll(identifiers);
+        }
+    }
+
+    // Строка задачи из кэша или заново закодированная в формате основного файла
+    private byte[] encodedRow(Task task) throws IOException {
+        byte[] row = encodedRows.get(task.getTaskId());
+        if (row != null) {
+            return row;
+        }
+
+        if (settings.getSnapshotFormat() == SnapshotFormat.BINARY) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(64);
+            BinaryFormatter.write(output, task);
+            row = output.toByteArray();
+        } else {
+            while (true) {
+                try {
+                    CsvCodec.encode(task, encodeBuffer.clear());
+                    encodeBuffer.put((byte) '\n');
+                    break;
+                } catch (BufferOverflowException e) {
+                    encodeBuffer = ByteBuffer.allocate(encodeBuffer.capacity() * 2);
+                }
+            }
+            row = Arrays.copyOf(encodeBuffer.array(), encodeBuffer.position());
+        }
+
+        encodedRows.put(task.getTaskId(), row);
+        return row;
+    }
+
+    // Выгрузка текущего состояния в CSV независимо от формата основного файла
+    public void exportToCsv(File target) {
+        synchronized (writeLock) {
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(target),
+                    StandardCharsets.UTF_8))) {
+                writeSnapshot(writer, getTasks(), getEpics(), getSubtasks());
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка выгрузки в файл " + target.getName(), e);
+            }
+        }
+    }
+
+    // Запись снимка с fsync в режимах PER_OPERATION и GROUP_COMMIT
+    private void writeSnapshot(File target, List<Task> tasks, List<Epic> epics,
+                               List<Subtask> subtasks) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(target)) {
+            if (settings.getSnapshotFormat() == SnapshotFormat.BINARY) {
+                BufferedOutputStream stream = new BufferedOutputStream(output, 1 << 16);
+                writeBinarySnapshot(stream, tasks, epics, subtasks);
+                stream.flush();
+            } else {
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                writeSnapshot(writer, tasks, epics, subtasks);
+                writer.flush();
+            }
+
+            if (settings.getDurability() != Durability.BUFFERED) {
+                output.getFD().sync();
+            }
+        }
+    }
+
+    private static void writeBinarySnapshot(OutputStream output, List<Task> tasks, List<Epic> epics,
+                                            List<Subtask> subtasks) throws IOException {
+        BinaryFormatter.writeHeader(output, tasks.size() + epics.size() + subtasks.size());
+
+        for (Task task : tasks) {
+            BinaryFormatter.write(output, task);
+        }
+
+        for (Epic epic : epics) {
+            BinaryFormatter.write(output, epic);
+        }
+
+        for (Subtask subtask : subtasks) {
+            BinaryFormatter.write(output, subtask);
+        }
+    }
+
+    private static void writeSnapshot(BufferedWriter writer, List<Task> tasks, List<Epic> epics,
+                                      List<Subtask> subtasks) throws IOException {
+        writer.write(CSVFormatter.getHeader()); // заголовок
+        writer.newLine();
+
+        // Строки задач пишутся прямо в буфер writer, без промежуточных строк
+        for (Task task : tasks) {
+            CsvCodec.encode(task, writer);
+            writer.newLine();
+        }
+
+        for (Epic epic : epics) {
+            CsvCodec.encode(epic, writer);
+            writer.newLine();
+        }
+
+        for (Subtask subtask : subtasks) {
+            CsvCodec.encode(subtask, writer);
+            writer.newLine();
+        }
+    }
+
+    // Состояние, восстанавливаемое из снимка и журнала
+    private static class RestoredState implements TaskJournal.Visitor, Consumer<Task> {
+        private static final int PARALLEL_LINK_THRESHOLD = 10_000; // Меньше подзадач привязываются в одном потоке
+
+        private final IntObjectMap<Task> tasks = new IntObjectMap<>();
+        private final IntObjectMap<Epic> epics = new IntObjectMap<>();
+        private final IntObjectMap<Subtask> subtasks = new IntObjectMap<>();
+        private int maxId;
+
+        // Объединение кусков в порядке их следования в файле: при совпадении ID побеждает более поздний
+        private static RestoredState merge(List<RestoredState> chunks) {
+            if (chunks.size() == 1) {
+                return chunks.getFirst();
+            }
+
+            RestoredState state = new RestoredState();
+            for (RestoredState chunk : chunks) {
+                state.tasks.putAll(chunk.tasks);
+                state.epics.putAll(chunk.epics);
+                state.subtasks.putAll(chunk.subtasks);
+                state.maxId = Math.max(chunk.maxId, state.maxId);
+            }
+            return state;
+        }
+
+        @Override
+        public void accept(Task task) {
+            upsert(task);
+        }
+
+        @Override
+        public void upsert(Task task) {
+            maxId = Math.max(task.getTaskId(), maxId);
+
+            if (task instanceof Epic epic) {
+                epics.put(epic.getTaskId(), epic);
+            } else if (task instanceof Subtask subtask) {
+                subtasks.put(subtask.getTaskId(), subtask);
+            } else {
+                tasks.put(task.getTaskId(), task);
+            }
+        }
+
+        @Override
+        public void delete(int identifier) {
+            tasks.remove(identifier);
+            epics.remove(identifier);
+            subtasks.remove(identifier);
+        }
+
+        @Override
+        public void clear(TaskType taskType) {
+            switch (taskType) {
+                case TASK -> tasks.clear();
+                case EPIC -> {
+                    epics.clear();
+                    subtasks.clear();
+                }
+                case SUBTASK -> subtasks.clear();
+            }
+        }
+
+        // Привязка подзадач к эпикам, подзадачи удаленных эпиков отбрасываются
+        private void linkSubtasks() {
+            if (subtasks.size() >= PARALLEL_LINK_THRESHOLD) {
+                linkSubtasksInParallel();
+                return;
+            }
+
+            Iterator<Subtask> iterator = subtasks.values().iterator();
+            while (iterator.hasNext()) {
+                Subtask subtask = iterator.next();
+                Epic epic = epics.get(subtask.getEpicIdentifier());
+                if (epic != null) {
+                    epic.addSubtask(subtask);
+                } else {
+                    iterator.remove();
+                }
+            }
+        }
+
+        // Подзадачи делятся на части, каждая часть группируется по ID эпика параллельно.
+        // Затем эпики обрабатываются параллельно: каждый эпик получает свои подзадачи из всех частей по порядку,
+        // поэтому один эпик изменяется только одним потоком
+        private void linkSubtasksInParallel() {
+            Subtask[] all = subtasks.values().toArray(new Subtask[0]);
+            int parts = ForkJoinPool.getCommonPoolParallelism() * 4;
+            int partSize = (all.length + parts - 1) / parts;
+
+            List<IntObjectMap<List<Subtask>>> groups = IntStream.range(0, parts).parallel()
+                    .mapToObj(part -> {
+                        IntObjectMap<List<Subtask>> group = new IntObjectMap<>();
+                        int end = Math.min(all.length, (part + 1) * partSize);
+                        for (int i = part * partSize; i < end; i++) {
+                            group.computeIfAbsent(all[i].getEpicIdentifier(), key -> new ArrayList<>()).add(all[i]);
+                        }
+                        return group;
+                    })
+                    .toList();
+
+            epics.values().parallelStream().forEach(epic -> {
+                for (IntObjectMap<List<Subtask>> group : groups) {
+                    List<Subtask> epicSubtasks = group.get(epic.getTaskId());
+                    if (epicSubtasks != null) {
+                        for (Subtask subtask : epicSubtasks) {
+                            epic.addSubtask(subtask);
+                        }
+                    }
+                }
+            });
+
+            subtasks.values().removeIf(subtask -> !epics.containsKey(subtask.getEpicIdentifier()));
+        }
+    }
 }
@@ -2,14 +2,25 @@ package manager;
 
 import tasks.Task;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface HistoryManager {
     // Возвращает историю
     List<Task> getHistory();
 
+    // Поток истории от давних просмотров к последним. По умолчанию - поток копии истории
+    default Stream<Task> streamHistory() {
+        return getHistory().stream();
+    }
+
     // Добавление задачи в историю
     void addInHistory(Task task);
 
     //Удаление задачи из истории по ID
     void removeFromHistory(int id);
+
+    // Наибольшее число задач в истории. При переполнении вытесняется самый давний просмотр
+    default int getCapacity() {
+        return Integer.MAX_VALUE;
+    }
 }
@@ -0,0 +1,240 @@
+package manager;
+
+import tasks.Task;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+// Порядок ID таблицы для постраничного чтения: отсортированный массив ID. Новые ID больше прежних
+// и дописываются в конец за O(1). Удаление только отмечается: страница пропускает ID, которых уже нет
+// в таблице, а массив очищается от них, когда отметок становится больше половины ID.
+// ID не по порядку (восстановленные откатом) копятся в хвосте массива и вливаются в него методом merge,
+// который чтение страницы и диапазона вызывает само, если хвост не пуст. ID, выданные откаченной транзакцией,
+// отбрасываются методом truncate, потому что генератор выдаст их заново. Очистка и слияние создают новый массив, поэтому начатый обход
+// продолжает идти по прежнему. Не потокобезопасен
+class IdOrder<T extends Task> {
+    private final IntObjectMap<T> map;
+    private int[] ids = new int[8];
+    private int size;
+    private int sortedSize; // Длина отсортированного начала массива, остальное - хвост для merge
+    private int removals;   // Отмеченные удаления с последней очистки массива
+    private Collection<T> view;
+
+    IdOrder(IntObjectMap<T> map) {
+        this.map = map;
+        for (int identifier : map.keySet()) {
+            add(identifier);
+        }
+        merge();
+    }
+
+    // Запись ID, появившегося в таблице
+    void add(int identifier) {
+        if (size > 0 && ids[size - 1] == identifier) {
+            return;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size++] = identifier;
+        if (sortedSize == size - 1 && (sortedSize == 0 || ids[sortedSize - 1] < identifier)) {
+            sortedSize = size;
+        }
+    }
+
+    // Отметка удаления ID из таблицы. Вызывается после удаления из таблицы
+    void markRemoved() {
+        if (++removals > size / 2) {
+            compact();
+        }
+    }
+
+    // Удаление ID не меньше identifier: ID откаченной транзакции, которые генератор выдаст повторно
+    void truncate(int identifier) {
+        merge();
+        int count = indexOf(identifier);
+        removals = Math.max(0, removals - (size - count));
+        size = count;
+        sortedSize = count;
+    }
+
+    void clear() {
+        ids = new int[8];
+        size = 0;
+        sortedSize = 0;
+        removals = 0;
+    }
+
+    // Слияние хвоста с отсортированным началом без повторов: O(n + k log k) для k ID в хвосте
+    void merge() {
+        if (sortedSize == size) {
+            return;
+        }
+
+        Arrays.sort(ids, sortedSize, size);
+        int[] merged = new int[Math.max(8, size)];
+        int count = 0;
+        int i = 0;
+        int j = sortedSize;
+        while (i < sortedSize || j < size) {
+            int next = j == size || (i < sortedSize && ids[i] <= ids[j]) ? ids[i++] : ids[j++];
+            if (count == 0 || merged[count - 1] != next) {
+                merged[count++] = next;
+            }
+        }
+        ids = merged;
+        size = count;
+        sortedSize = count;
+    }
+
+    // Не больше limit значений с ID больше afterId по возрастанию ID
+    List<T> page(int afterId, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Размер страницы не может быть отрицательным");
+        }
+
+        merge();
+        int from = indexAfter(afterId);
+        List<T> page = new ArrayList<>(Math.min(limit, size - from));
+        for (int i = from; i < size && page.size() < limit; i++) {
+            T value = map.get(ids[i]);
+            if (value != null) {
+                page.add(value);
+            }
+        }
+        return page;
+    }
+
+    // Верхняя граница числа значений с ID от fromId до toId: ID диапазона вместе с отмеченными удалениями
+    int count(int fromId, int toId) {
+        merge();
+        return Math.max(0, indexAfter(toId) - indexOf(fromId));
+    }
+
+    // Значения с ID от fromId до toId по возрастанию ID. Начатый обход не видит следующих изменений массива
+    Iterable<T> range(int fromId, int toId) {
+        return () -> {
+            merge();
+            int from = indexOf(fromId);
+            int to = Math.max(from, indexAfter(toId));
+            return Spliterators.iterator(new IdSpliterator(ids, from, to));
+        };
+    }
+
+    // Позиция первого ID не меньше identifier
+    private int indexOf(int identifier) {
+        int found = Arrays.binarySearch(ids, 0, size, identifier);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    // Позиция первого ID больше identifier
+    private int indexAfter(int identifier) {
+        int found = Arrays.binarySearch(ids, 0, size, identifier);
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    // Неизменяемое живое представление таблицы в порядке ID. Разделитель потока сначала очищает массив
+    // от удаленных ID, поэтому знает точный размер каждой части: SIZED и SUBSIZED
+    Collection<T> view() {
+        if (view == null) {
+            view = new AbstractCollection<>() {
+                @Override
+                public Iterator<T> iterator() {
+                    return Spliterators.iterator(spliterator());
+                }
+
+                @Override
+                public Spliterator<T> spliterator() {
+                    if (removals > 0 || sortedSize != size) {
+                        compact();
+                    }
+                    return new IdSpliterator(ids, 0, size);
+                }
+
+                @Override
+                public int size() {
+                    return map.size();
+                }
+
+                @Override
+                public boolean contains(Object value) {
+                    return value instanceof Task task && value.equals(map.get(task.getTaskId()));
+                }
+            };
+        }
+        return view;
+    }
+
+    // Удаление из массива ID, которых нет в таблице, в новый массив
+    private void compact() {
+        merge();
+        int[] live = new int[Math.max(8, map.size())];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (map.containsKey(ids[i])) {
+                live[count++] = ids[i];
+            }
+        }
+        ids = live;
+        size = count;
+        sortedSize = count;
+        removals = 0;
+    }
+
+    // Разделитель по диапазону массива ID: части делятся пополам по числу ID, ID без значения в таблице
+    // пропускаются. Размер точен, если массив очищен перед созданием разделителя, как в view
+    private final class IdSpliterator implements Spliterator<T> {
+        private final int[] identifiers;
+        private int index;
+        private final int fence;
+
+        private IdSpliterator(int[] identifiers, int index, int fence) {
+            this.identifiers = identifiers;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (index < fence) {
+                T value = map.get(identifiers[index++]);
+                if (value != null) { // ID удален во время обхода
+                    action.accept(value);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (; index < fence; index++) {
+                T value = map.get(identifiers[index]);
+                if (value != null) {
+                    action.accept(value);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int middle = (index + fence) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            Spliterator<T> prefix = new IdSpliterator(identifiers, index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | SIZED | SUBSIZED;
+        }
+    }
+}
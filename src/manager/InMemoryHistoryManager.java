@@ -4,9 +4,14 @@ package manager;
 import tasks.Task;
 
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+// История просмотров. По умолчанию размер не ограничен. При заданном размере и переполнении вытесняется задача,
+// которую смотрели давнее всех
 public class InMemoryHistoryManager implements HistoryManager {
-    private final Map<Integer, Node> nodes;
+    private final IntObjectMap<Node> nodes;
+    private final int capacity;
 
     // Указатель на первый элемент списка
     private Node head;
@@ -15,7 +20,21 @@ public class InMemoryHistoryManager implements HistoryManager {
     private Node tail;
 
     public InMemoryHistoryManager() {
-        nodes = new HashMap<>();
+        this(Integer.MAX_VALUE);
+    }
+
+    // История не больше чем на capacity задач
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным");
+        }
+        this.capacity = capacity;
+        nodes = new IntObjectMap<>();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
     }
 
     // Возвращает историю
@@ -32,6 +51,31 @@ public class InMemoryHistoryManager implements HistoryManager {
         return tasks;
     }
 
+    // Поток истории по связному списку без копии. История не должна изменяться, пока поток не обработан
+    @Override
+    public Stream<Task> streamHistory() {
+        Iterator<Task> iterator = new Iterator<>() {
+            private Node node = head;
+
+            @Override
+            public boolean hasNext() {
+                return node != null;
+            }
+
+            @Override
+            public Task next() {
+                if (node == null) {
+                    throw new NoSuchElementException();
+                }
+                Task task = node.data;
+                node = node.next;
+                return task;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliterator(iterator, nodes.size(),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
     // Добавление задачи в историю
     @Override
     public void addInHistory(Task task) {
@@ -41,6 +85,9 @@ public class InMemoryHistoryManager implements HistoryManager {
 
         addLast(task);
         nodes.put(task.getTaskId(), tail);
+        if (nodes.size() > capacity) {
+            removeFromHistory(head.data.getTaskId()); // Вытеснение за O(1): голова списка - самый давний просмотр
+        }
     }
 
     @Override // Удаление из истории
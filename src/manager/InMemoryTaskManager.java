@@ -4,42 +4,76 @@ import tasks.Epic;
 import tasks.Subtask;
 import tasks.Task;
 import tasks.TaskStatus;
+import tasks.TaskType;
 
 import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class InMemoryTaskManager implements TaskManager {
-    private final Map<Integer, Task> taskMap;
-    private final Map<Integer, Epic> epicMap;
-    private final Map<Integer, Subtask> subtaskMap;
+    private static final int EVENT_BUFFER_SIZE = 8192; // Предел буфера событий подписчика, растет по мере надобности
+
+    private final IntObjectMap<Task> taskMap;
+    private final IntObjectMap<Epic> epicMap;
+    private final IntObjectMap<Subtask> subtaskMap;
+    private final StatusIndex statusIndex; // Задачи по типу и статусу, обновляется вместе с таблицами
+    private final TextIndex textIndex; // Слова названий и описаний для поиска, обновляется вместе с таблицами
+    private final IdOrder<Task> taskOrder; // ID таблиц по возрастанию для постраничного чтения
+    private final IdOrder<Epic> epicOrder;
+    private final IdOrder<Subtask> subtaskOrder;
     private int generatorId; // Поле для генерации идентификатора
     private final HistoryManager historyManager; // История просмотров задач
+    private TransactionLog transaction; // Текущая транзакция, null вне inTransaction
+    private final TaskEventPublisher events; // События изменений, в транзакции публикуются при фиксации
 
     public InMemoryTaskManager() {
-        this.taskMap = new HashMap<>();
-        this.epicMap = new HashMap<>();
-        this.subtaskMap = new HashMap<>();
-        this.historyManager = Managers.getDefaultHistory();
+        this(Managers.getDefaultHistory());
+    }
+
+    // Менеджер с заданной историей, например Managers.getDefaultHistory(capacity)
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this.taskMap = new IntObjectMap<>();
+        this.epicMap = new IntObjectMap<>();
+        this.subtaskMap = new IntObjectMap<>();
+        this.statusIndex = new StatusIndex();
+        this.textIndex = new TextIndex();
+        this.taskOrder = new IdOrder<>(taskMap);
+        this.epicOrder = new IdOrder<>(epicMap);
+        this.subtaskOrder = new IdOrder<>(subtaskMap);
+        this.historyManager = historyManager;
         this.generatorId = 1;
+        this.events = new TaskEventPublisher(ForkJoinPool.commonPool(), EVENT_BUFFER_SIZE);
     }
 
     /*
      *  Задачи
      */
 
-    protected InMemoryTaskManager(Map<Integer, Task> tasks, Map<Integer, Epic> epics,
-                                  Map<Integer, Subtask> subtasks, int id) {
+    protected InMemoryTaskManager(IntObjectMap<Task> tasks, IntObjectMap<Epic> epics,
+                                  IntObjectMap<Subtask> subtasks, int id) {
         this.taskMap = tasks;
         this.epicMap = epics;
         this.subtaskMap = subtasks;
+        this.statusIndex = new StatusIndex();
+        this.textIndex = new TextIndex();
+        this.taskOrder = new IdOrder<>(tasks);
+        this.epicOrder = new IdOrder<>(epics);
+        this.subtaskOrder = new IdOrder<>(subtasks);
+        tasks.values().forEach(task -> index(TaskType.TASK, task));
+        epics.values().forEach(epic -> index(TaskType.EPIC, epic));
+        subtasks.values().forEach(subtask -> index(TaskType.SUBTASK, subtask));
         this.historyManager = Managers.getDefaultHistory();
         this.generatorId = id;
+        this.events = new TaskEventPublisher(ForkJoinPool.commonPool(), EVENT_BUFFER_SIZE);
     }
 
     // Создание новой задачи
     @Override
     public void createNewTask(Task task) {
         task.setTaskId(getNextId());
-        taskMap.put(task.getTaskId(), task);
+        put(taskMap, task.getTaskId(), task);
     }
 
     // Получение списка задач
@@ -52,16 +86,16 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void deleteAllTasks() {
         for (Task task : taskMap.values()) {
-            historyManager.removeFromHistory(task.getTaskId());
+            removeFromHistory(task.getTaskId());
         }
-        taskMap.clear();
+        clear(taskMap);
     }
 
     // Обновление задачи
     @Override
     public Task updateTask(Task task) {
         if (taskMap.containsKey(task.getTaskId())) {
-            taskMap.put(task.getTaskId(), task);
+            put(taskMap, task.getTaskId(), task);
             return task;
         }
         return null;
@@ -78,8 +112,8 @@ public class InMemoryTaskManager implements TaskManager {
     //Удаление задачи по идентификатору
     @Override
     public Task deleteTaskById(int identifier) {
-        Task task = taskMap.remove(identifier);
-        historyManager.removeFromHistory(identifier);
+        Task task = remove(taskMap, identifier);
+        removeFromHistory(identifier);
         return task;
     }
 
@@ -91,7 +125,7 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void createNewEpic(Epic epic) {
         epic.setTaskId(getNextId());
-        epicMap.put(epic.getTaskId(), epic);
+        put(epicMap, epic.getTaskId(), epic);
     }
 
     // Получение списка эпиков
@@ -105,13 +139,13 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteAllEpics() {
         for (Epic epic : epicMap.values()) {
             for (Subtask subtask : epic.getSubtasks()) {
-                historyManager.removeFromHistory(subtask.getTaskId());
+                removeFromHistory(subtask.getTaskId());
             }
-            historyManager.removeFromHistory(epic.getTaskId());
+            removeFromHistory(epic.getTaskId());
         }
 
-        subtaskMap.clear();
-        epicMap.clear();
+        clear(subtaskMap);
+        clear(epicMap);
     }
 
     // Обновление эпика
@@ -119,9 +153,11 @@ public class InMemoryTaskManager implements TaskManager {
     public Epic updateEpic(Epic epic) {
         if (epicMap.containsKey(epic.getTaskId())) {
             Epic currentEpic = epicMap.get(epic.getTaskId());
-            epic.setSubtasks(currentEpic.getSubtasks());
-            epicMap.put(epic.getTaskId(), epic);
-            updateEpicStatus(epic);
+            touch(epic);
+            epic.adoptSubtasks(currentEpic);
+            epic.setTaskStatus(currentEpic.getTaskStatus()); // Статус выводится из подзадач при пересчете ниже
+            put(epicMap, epic.getTaskId(), epic);
+            refreshEpicStatus(epic);
             return epic;
         }
         return null;
@@ -138,14 +174,20 @@ public class InMemoryTaskManager implements TaskManager {
     // Удаление эпика по идентификатору
     @Override
     public Epic deleteEpicById(int identifier) {
-       Epic epic = epicMap.remove(identifier);
+       Epic epic = removeEpic(identifier);
+       removeFromHistory(identifier);
+       return epic;
+    }
+
+    // Удаление эпика вместе с подзадачами
+    private Epic removeEpic(int identifier) {
+       Epic epic = remove(epicMap, identifier);
        if (epic != null) {
            for (Subtask subtask : epic.getSubtasks()) {
-               subtaskMap.remove(subtask.getTaskId());
-               historyManager.removeFromHistory(subtask.getTaskId());
+               remove(subtaskMap, subtask.getTaskId());
+               removeFromHistory(subtask.getTaskId());
            }
        }
-       historyManager.removeFromHistory(identifier);
        return epic;
     }
 
@@ -167,9 +209,10 @@ public class InMemoryTaskManager implements TaskManager {
         }
         subtask.setTaskId(getNextId());
         subtask.setEpicIdentifier(epic.getTaskId());
-        subtaskMap.put(subtask.getTaskId(), subtask);
+        put(subtaskMap, subtask.getTaskId(), subtask);
+        touch(epic);
         epic.addSubtask(subtask);
-        updateEpicStatus(epic);
+        refreshEpicStatus(epic);
     }
 
     // Получения списка всех подзадач
@@ -190,33 +233,35 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void deleteAllSubtasks() {
         for (Subtask subtask : subtaskMap.values()) {
-            historyManager.removeFromHistory(subtask.getTaskId());
+            removeFromHistory(subtask.getTaskId());
         }
-        subtaskMap.clear();
+        clear(subtaskMap);
 
         for (Epic epic : epicMap.values()) {
             for (Subtask subtask : epic.getSubtasks()) {
-                historyManager.removeFromHistory(subtask.getTaskId());
+                removeFromHistory(subtask.getTaskId());
             }
-            epic.getSubtasks().clear();
-            updateEpicStatus(epic);
+            touch(epic);
+            epic.clearSubtasks();
+            refreshEpicStatus(epic);
         }
     }
 
     // Удаление подзадачи по идентификатору
     @Override
     public Subtask deleteSubtaskById(int identifier) {
-        Subtask subtask = subtaskMap.remove(identifier);
+        Subtask subtask = remove(subtaskMap, identifier);
 
         if (subtask != null) {
             Epic epic = epicMap.get(subtask.getEpicIdentifier());
             if (epic != null) {
-                historyManager.removeFromHistory(subtask.getTaskId());
-                epic.getSubtasks().remove(subtask);
-                updateEpicStatus(epic);
+                removeFromHistory(subtask.getTaskId());
+                touch(epic);
+                epic.removeSubtask(subtask);
+                refreshEpicStatus(epic);
             }
         }
-        historyManager.removeFromHistory(identifier);
+        removeFromHistory(identifier);
         return subtask;
     }
 
@@ -231,69 +276,648 @@ public class InMemoryTaskManager implements TaskManager {
             Subtask currentSubtask = subtaskMap.get(subtask.getTaskId());
             subtask.setEpicIdentifier(currentSubtask.getEpicIdentifier()); // Сохранение связи подзадачи с эпиком
 
-            subtaskMap.put(subtask.getTaskId(), subtask);
+            put(subtaskMap, subtask.getTaskId(), subtask);
             Epic epic = epicMap.get(subtask.getEpicIdentifier());
 
             if (epic != null) {
                 // Замена подзадачи в списке эпика с обновлением статуса
-                List<Subtask> subtasks = epic.getSubtasks();
-                for (int i = 0; i < subtasks.size(); i++) {
-                    if (subtasks.get(i).getTaskId() == subtask.getTaskId()) {
-                        subtasks.set(i, subtask);
-                        break;
-                    }
-                }
-                updateEpicStatus(epic);
+                touch(epic);
+                epic.replaceSubtask(subtask);
+                refreshEpicStatus(epic);
             }
             return subtask;
         }
         return null;
     }
 
+    /*
+     *  Массовые операции: выполняются в одной транзакции, ID выделяются одним блоком,
+     *  таблицы расширяются один раз, статус каждого эпика пересчитывается один раз
+     */
+
+    // Создание задач
+    @Override
+    public void createNewTasks(Collection<? extends Task> tasks) {
+        transactional(() -> {
+            IntObjectMap<Task> created = new IntObjectMap<>(tasks.size());
+            int first = reserveIds(tasks.size());
+            int identifier = first;
+            for (Task task : tasks) {
+                task.setTaskId(identifier++);
+                created.put(task.getTaskId(), task);
+            }
+            taskMap.putAll(created); // Новые ID не попадают в журнал отмены
+            created.values().forEach(task -> index(TaskType.TASK, task));
+            appendCreated(TaskType.TASK, created, first, identifier);
+        });
+    }
+
+    // Создание эпиков
+    @Override
+    public void createNewEpics(Collection<Epic> epics) {
+        transactional(() -> {
+            IntObjectMap<Epic> created = new IntObjectMap<>(epics.size());
+            int first = reserveIds(epics.size());
+            int identifier = first;
+            for (Epic epic : epics) {
+                epic.setTaskId(identifier++);
+                created.put(epic.getTaskId(), epic);
+            }
+            epicMap.putAll(created);
+            created.values().forEach(epic -> index(TaskType.EPIC, epic));
+            appendCreated(TaskType.EPIC, created, first, identifier);
+        });
+    }
+
+    // Создание подзадач одного эпика
+    @Override
+    public void createNewSubtasks(Epic epic, Collection<Subtask> subtasks) {
+        createSubtasks(epic, subtasks);
+    }
+
+    // Создание подзадач одного эпика, возвращает созданные. Набор проверяется строже, чем создание
+    // по одной: пропускаются подзадачи, которые нельзя создать одним блоком ID, и повторы в наборе
+    protected List<Subtask> createSubtasks(Epic epic, Collection<Subtask> subtasks) {
+        List<Subtask> accepted = new ArrayList<>(subtasks.size());
+        Set<Subtask> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Subtask subtask : subtasks) {
+            if (canCreateInBatch(epic, subtask) && seen.add(subtask)) {
+                accepted.add(subtask);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return accepted;
+        }
+
+        transactional(() -> {
+            IntObjectMap<Subtask> created = new IntObjectMap<>(accepted.size());
+            int first = reserveIds(accepted.size());
+            int identifier = first;
+            touch(epic);
+            for (Subtask subtask : accepted) {
+                subtask.setTaskId(identifier++);
+                subtask.setEpicIdentifier(epic.getTaskId());
+                created.put(subtask.getTaskId(), subtask);
+                epic.addSubtask(subtask);
+            }
+            subtaskMap.putAll(created);
+            created.values().forEach(subtask -> index(TaskType.SUBTASK, subtask));
+            appendCreated(TaskType.SUBTASK, created, first, identifier);
+            refreshEpicStatus(epic);
+        });
+        return accepted;
+    }
+
+    // Подзадача из набора создается только для эпика с ID из менеджера (прежняя версия эпика после updateEpic
+    // делит с ним список подзадач), не может совпадать с эпиком по ID и не должна уже храниться в менеджере
+    private boolean canCreateInBatch(Epic epic, Subtask subtask) {
+        return epic.getTaskId() != subtask.getTaskId()
+                && epicMap.containsKey(epic.getTaskId())
+                && subtaskMap.get(subtask.getTaskId()) != subtask;
+    }
+
+    // Обновление задач, возвращает обновленные
+    @Override
+    public List<Task> updateTasks(Collection<? extends Task> tasks) {
+        List<Task> updated = new ArrayList<>(tasks.size());
+        transactional(() -> {
+            for (Task task : tasks) {
+                if (taskMap.containsKey(task.getTaskId())) {
+                    put(taskMap, task.getTaskId(), task);
+                    updated.add(task);
+                }
+            }
+        });
+        return updated;
+    }
+
+    // Обновление подзадач, возвращает обновленные. Подзадачи группируются по эпикам,
+    // статус каждого эпика пересчитывается один раз
+    @Override
+    public List<Subtask> updateSubtasks(Collection<Subtask> subtasks) {
+        List<Subtask> updated = new ArrayList<>(subtasks.size());
+        transactional(() -> {
+            IntObjectMap<IntObjectMap<Subtask>> byEpic = new IntObjectMap<>();
+            for (Subtask subtask : subtasks) {
+                Subtask currentSubtask = subtaskMap.get(subtask.getTaskId());
+                if (subtask.getEpicIdentifier() == subtask.getTaskId() || currentSubtask == null) {
+                    continue;
+                }
+                subtask.setEpicIdentifier(currentSubtask.getEpicIdentifier()); // Сохранение связи подзадачи с эпиком
+                put(subtaskMap, subtask.getTaskId(), subtask);
+                byEpic.computeIfAbsent(subtask.getEpicIdentifier(), key -> new IntObjectMap<>())
+                        .put(subtask.getTaskId(), subtask);
+                updated.add(subtask);
+            }
+
+            for (Map.Entry<Integer, IntObjectMap<Subtask>> entry : byEpic.entrySet()) {
+                Epic epic = epicMap.get(entry.getKey());
+                if (epic == null) {
+                    continue;
+                }
+                touch(epic);
+                for (Subtask subtask : entry.getValue().values()) {
+                    epic.replaceSubtask(subtask);
+                }
+                refreshEpicStatus(epic);
+            }
+        });
+        return updated;
+    }
+
+    // Удаление задач, эпиков и подзадач по ID, возвращает удаленные.
+    // Подзадачи группируются по эпикам, статус каждого эпика пересчитывается один раз
+    @Override
+    public List<Task> deleteByIds(int[] identifiers) {
+        List<Task> deleted = new ArrayList<>(identifiers.length);
+        transactional(() -> {
+            IntObjectMap<List<Subtask>> subtasksByEpic = new IntObjectMap<>();
+            for (int identifier : identifiers) {
+                Task task = remove(taskMap, identifier);
+                if (task == null) {
+                    task = removeEpic(identifier);
+                }
+                if (task == null) {
+                    Subtask subtask = remove(subtaskMap, identifier);
+                    if (subtask != null) {
+                        subtasksByEpic.computeIfAbsent(subtask.getEpicIdentifier(), key -> new ArrayList<>())
+                                .add(subtask);
+                    }
+                    task = subtask;
+                }
+                if (task != null) {
+                    removeFromHistory(identifier);
+                    deleted.add(task);
+                }
+            }
+
+            for (Map.Entry<Integer, List<Subtask>> entry : subtasksByEpic.entrySet()) {
+                Epic epic = epicMap.get(entry.getKey());
+                if (epic != null) {
+                    touch(epic);
+                    for (Subtask subtask : entry.getValue()) {
+                        epic.removeSubtask(subtask);
+                    }
+                    refreshEpicStatus(epic);
+                }
+            }
+        });
+        return deleted;
+    }
+
+    // Издатель событий изменений: создание, обновление и удаление задач, эпиков и подзадач и смена статуса
+    // эпика. Изменения транзакции публикуются после фиксации. Подписчик, который не успевает обрабатывать
+    // события, получает ошибку вместо пропуска события, менеджер при этом не ждет
+    public Flow.Publisher<TaskEvent> getEventPublisher() {
+        return events;
+    }
+
     // Возвращает историю
     @Override
     public List<Task> getHistory() {
         return historyManager.getHistory();
     }
 
-    // Добавление задачи в историю
-    private void addInHistory(Task task) {
+    // Получение задач, эпиков или подзадач в заданном статусе по индексу, без обхода всех задач
+    @Override
+    public List<Task> getByStatus(TaskType taskType, TaskStatus taskStatus) {
+        return statusIndex.get(taskType, taskStatus);
+    }
+
+    // Число задач, эпиков или подзадач в заданном статусе
+    @Override
+    public int countByStatus(TaskType taskType, TaskStatus taskStatus) {
+        return statusIndex.count(taskType, taskStatus);
+    }
+
+    // Страница задач по возрастанию ID: бинарный поиск afterId в упорядоченном массиве ID
+    @Override
+    public List<Task> getTasks(int afterId, int limit) {
+        return taskOrder.page(afterId, limit);
+    }
+
+    // Страница эпиков по возрастанию ID
+    @Override
+    public List<Epic> getEpics(int afterId, int limit) {
+        return epicOrder.page(afterId, limit);
+    }
+
+    // Страница подзадач по возрастанию ID
+    @Override
+    public List<Subtask> getSubtasks(int afterId, int limit) {
+        return subtaskOrder.page(afterId, limit);
+    }
+
+    // Поток задач по возрастанию ID прямо по таблице: без копии списка, с точным размером частей
+    // для параллельного обхода
+    @Override
+    public Stream<Task> streamTasks() {
+        return taskOrder.view().stream();
+    }
+
+    // Поток эпиков по возрастанию ID
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epicOrder.view().stream();
+    }
+
+    // Поток подзадач по возрастанию ID
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtaskOrder.view().stream();
+    }
+
+    // Поток истории по списку просмотров без копии
+    @Override
+    public Stream<Task> streamHistory() {
+        return historyManager.streamHistory();
+    }
+
+    // Неизменяемое живое представление задач по возрастанию ID
+    @Override
+    public Collection<Task> getTasksView() {
+        return taskOrder.view();
+    }
+
+    // Неизменяемое живое представление эпиков по возрастанию ID
+    @Override
+    public Collection<Epic> getEpicsView() {
+        return epicOrder.view();
+    }
+
+    // Неизменяемое живое представление подзадач по возрастанию ID
+    @Override
+    public Collection<Subtask> getSubtasksView() {
+        return subtaskOrder.view();
+    }
+
+    // Выбор плана запроса по оценке числа кандидатов: индекс статусов, подзадачи эпика, индекс слов
+    // для начала названия или порядок ID. Перебор таблиц по порядку ID - только если ни один не подходит
+    @Override
+    public TaskQuery.Plan plan(TaskQuery query) {
+        List<TaskType> types = query.types();
+        TaskQuery.Plan plan = null;
+
+        if (query.getTaskStatus() != null) {
+            List<Collection<Task>> buckets = new ArrayList<>();
+            long count = 0;
+            for (TaskType taskType : types) {
+                buckets.add(statusIndex.view(taskType, query.getTaskStatus()));
+                count += statusIndex.count(taskType, query.getTaskStatus());
+            }
+            plan = TaskQuery.Plan.cheaper(plan, query.plan("индекс статусов", count, false, buckets));
+        }
+
+        if (query.getEpicIdentifier() != null && types.contains(TaskType.SUBTASK)) {
+            Epic epic = epicMap.get(query.getEpicIdentifier());
+            List<Subtask> subtasks = epic != null ? epic.getSubtasks() : List.of();
+            plan = TaskQuery.Plan.cheaper(plan,
+                    query.plan("подзадачи эпика", subtasks.size(), false, List.of(subtasks)));
+        }
+
+        List<TextIndex.Term> words = query.getNamePrefix() != null
+                ? TextIndex.prefixTerms(query.getNamePrefix())
+                : List.of();
+        if (!words.isEmpty()) {
+            Iterable<Task> matches = () -> Arrays.stream(textIndex.searchAll(words))
+                    .mapToObj(identifier -> findIn(types, identifier))
+                    .filter(Objects::nonNull)
+                    .iterator();
+            plan = TaskQuery.Plan.cheaper(plan,
+                    query.plan("индекс слов", textIndex.estimate(words), true, List.of(matches)));
+        }
+
+        if (query.hasIdRange() || plan == null) {
+            List<Iterable<? extends Task>> ranges = new ArrayList<>();
+            long count = 0;
+            for (TaskType taskType : types) {
+                IdOrder<?> order = orderOf(mapOf(taskType));
+                ranges.add(order.range(query.getFromId(), query.getToId()));
+                count += order.count(query.getFromId(), query.getToId());
+            }
+            plan = query.hasIdRange()
+                    ? TaskQuery.Plan.cheaper(plan, query.plan("порядок ID", count, true, ranges))
+                    : query.scan(ranges, count, true);
+        }
+        return plan;
+    }
+
+    // Поиск по обратному индексу слов: пересечение списков ID всех слов запроса
+    @Override
+    public List<Task> searchAll(String query) {
+        return tasksOf(textIndex.searchAll(TextIndex.parse(query)));
+    }
+
+    // Поиск по обратному индексу слов: объединение списков ID слов запроса
+    @Override
+    public List<Task> searchAny(String query) {
+        return tasksOf(textIndex.searchAny(TextIndex.parse(query)));
+    }
+
+    // Задачи, эпики и подзадачи по возрастанию ID без записи в историю
+    private List<Task> tasksOf(int[] identifiers) {
+        List<Task> result = new ArrayList<>(identifiers.length);
+        for (int identifier : identifiers) {
+            Task task = taskMap.get(identifier);
+            if (task == null) {
+                task = epicMap.get(identifier);
+            }
+            if (task == null) {
+                task = subtaskMap.get(identifier);
+            }
+            result.add(task);
+        }
+        return result;
+    }
+
+    // Проверка счетчиков статусов всех эпиков полным пересчетом подзадач и исправление статусов.
+    // Нужна после прямых изменений списков подзадач или статусов подзадач в обход менеджера,
+    // заодно переиндексирует по статусу все задачи и подзадачи.
+    // Возвращает число эпиков, у которых счетчики были неверны
+    public int repairEpicStatuses() {
+        taskMap.values().forEach(task -> statusIndex.add(TaskType.TASK, task));
+        subtaskMap.values().forEach(subtask -> statusIndex.add(TaskType.SUBTASK, subtask));
+        int repaired = 0;
+        for (Epic epic : epicMap.values()) {
+            touch(epic);
+            if (epic.recountSubtaskStatuses()) {
+                repaired++;
+            }
+            refreshStatus(epic);
+        }
+        return repaired;
+    }
+
+    // Выполнение группы изменений как одного целого. Статус каждого затронутого эпика пересчитывается
+    // один раз при фиксации. При исключении все изменения откатываются по журналу отмены, исключение пробрасывается.
+    // Вложенный вызов выполняется в рамках внешней транзакции
+    @Override
+    public void inTransaction(Consumer<TaskManager> changes) {
+        transactional(() -> changes.accept(this));
+    }
+
+    // Транзакция без виртуального вызова inTransaction: используется массовыми операциями,
+    // чтобы наследники не оборачивали их повторно
+    private void transactional(Runnable changes) {
+        if (transaction != null) {
+            changes.run();
+            return;
+        }
+
+        transaction = new TransactionLog(generatorId);
+        try {
+            changes.run();
+            commit();
+        } catch (RuntimeException | Error e) {
+            rollback();
+            throw e;
+        } finally {
+            transaction = null;
+        }
+    }
+
+    // Фиксация: пересчет статусов затронутых эпиков, удаление из истории и публикация событий транзакции
+    private void commit() {
+        for (Epic epic : transaction.getStaleEpics()) {
+            refreshStatus(epic);
+        }
+        for (int identifier : transaction.getHistoryRemovals()) {
+            historyManager.removeFromHistory(identifier);
+        }
+        for (TaskEvent event : transaction.getEvents()) {
+            events.publish(event);
+        }
+    }
+
+    // Откат: восстановление таблиц, подзадач и статусов эпиков и генератора ID.
+    // Индексы приводятся к таблицам только по ID, которые затронула транзакция
+    private void rollback() {
+        transaction.rollback(taskMap, epicMap, subtaskMap, generatorId);
+        transaction.forEachRestored(generatorId, this::reindex);
+        for (Epic epic : transaction.getTouchedEpics()) {
+            reindex(epic.getTaskId());
+        }
+        generatorId = transaction.getGeneratorId();
+        taskOrder.truncate(generatorId);
+        epicOrder.truncate(generatorId);
+        subtaskOrder.truncate(generatorId);
+    }
+
+    private void reindex(int identifier) {
+        Task task = taskMap.get(identifier);
+        Epic epic = epicMap.get(identifier);
+        Subtask subtask = subtaskMap.get(identifier);
+        reorder(taskOrder, identifier, task);
+        reorder(epicOrder, identifier, epic);
+        reorder(subtaskOrder, identifier, subtask);
+        statusIndex.update(TaskType.TASK, identifier, task);
+        statusIndex.update(TaskType.EPIC, identifier, epic);
+        statusIndex.update(TaskType.SUBTASK, identifier, subtask);
+
+        Task current = task != null ? task : epic != null ? epic : subtask;
+        if (current != null) {
+            textIndex.add(current);
+        } else {
+            textIndex.remove(identifier);
+        }
+    }
+
+    // Добавление задачи в историю. Доступно обертке StampedTaskManager, которая ищет задачи через find*
+    void addInHistory(Task task) {
         historyManager.addInHistory(task);
     }
 
+    // Поиск задачи, эпика или подзадачи по идентификатору без записи в историю
+    protected Task findTask(int identifier) {
+        return taskMap.get(identifier);
+    }
+
+    protected Epic findEpic(int identifier) {
+        return epicMap.get(identifier);
+    }
+
+    protected Subtask findSubtask(int identifier) {
+        return subtaskMap.get(identifier);
+    }
+
     // Получение идентификатора для следующей задачи
     private int getNextId() {
         return generatorId++;
     }
 
-    // Обновление статуса эпика
-    private void updateEpicStatus(Epic epic) {
-        boolean isAllNew = true;
-        boolean isAllDone = true;
+    // Выделение блока идентификаторов, возвращает первый
+    private int reserveIds(int count) {
+        int first = generatorId;
+        generatorId = Math.addExact(generatorId, count);
+        return first;
+    }
 
-        for (Subtask subtask : epic.getSubtasks()) {
-            TaskStatus status = subtask.getTaskStatus();
+    /*
+     *  Изменение таблиц с записью в журнал отмены транзакции и обновлением индексов
+     */
 
-            if (status != TaskStatus.NEW) {
-                isAllNew = false;
+    private <T extends Task> void put(IntObjectMap<T> map, int identifier, T task) {
+        remember(map, identifier);
+        T previous = map.put(identifier, task);
+        if (previous == null) {
+            orderOf(map).add(identifier);
+        }
+        index(typeOf(map), task);
+        if (events.isActive()) {
+            publish(previous == null
+                    ? TaskEvent.created(typeOf(map), task)
+                    : TaskEvent.updated(typeOf(map), previous, task));
+        }
+    }
+
+    private <T extends Task> T remove(IntObjectMap<T> map, int identifier) {
+        remember(map, identifier);
+        T task = map.remove(identifier);
+        if (task != null) {
+            orderOf(map).markRemoved();
+            statusIndex.remove(typeOf(map), identifier);
+            textIndex.remove(identifier);
+            if (events.isActive()) {
+                publish(TaskEvent.deleted(typeOf(map), task));
             }
+        }
+        return task;
+    }
 
-            if (status != TaskStatus.DONE) {
-                isAllDone = false;
+    private <T extends Task> void clear(IntObjectMap<T> map) {
+        if (transaction != null) {
+            for (int identifier : map.keySet()) {
+                remember(map, identifier);
             }
+        }
+        if (events.isActive()) {
+            for (T task : map.values()) {
+                publish(TaskEvent.deleted(typeOf(map), task));
+            }
+        }
+        orderOf(map).clear();
+        statusIndex.clear(typeOf(map));
+        textIndex.removeAll(map.keySet());
+        map.clear();
+    }
 
-            if (status == TaskStatus.IN_PROGRESS) {
-                epic.setTaskStatus(TaskStatus.IN_PROGRESS);
-                return;
+    // Запись созданных массово ID first..end - 1 в порядок ID и события о создании по возрастанию ID
+    private void appendCreated(TaskType taskType, IntObjectMap<? extends Task> created, int first, int end) {
+        IdOrder<?> order = orderOf(mapOf(taskType));
+        for (int identifier = first; identifier < end; identifier++) {
+            order.add(identifier);
+            if (events.isActive()) {
+                publish(TaskEvent.created(taskType, created.get(identifier)));
             }
         }
+    }
+
+    // Порядок ID после отката: task - текущее значение ID в таблице или null
+    private static void reorder(IdOrder<?> order, int identifier, Task task) {
+        if (task != null) {
+            order.add(identifier);
+        } else {
+            order.markRemoved();
+        }
+    }
+
+    private IdOrder<?> orderOf(IntObjectMap<? extends Task> map) {
+        if (map == taskMap) {
+            return taskOrder;
+        } else if (map == epicMap) {
+            return epicOrder;
+        }
+        return subtaskOrder;
+    }
+
+    private void index(TaskType taskType, Task task) {
+        statusIndex.add(taskType, task);
+        textIndex.add(task);
+    }
+
+    private <T extends Task> void remember(IntObjectMap<T> map, int identifier) {
+        if (transaction != null) {
+            transaction.remember(typeOf(map), identifier, map.get(identifier));
+        }
+    }
+
+    private IntObjectMap<? extends Task> mapOf(TaskType taskType) {
+        return switch (taskType) {
+            case TASK -> taskMap;
+            case EPIC -> epicMap;
+            case SUBTASK -> subtaskMap;
+        };
+    }
+
+    // Поиск ID в таблицах заданных типов
+    private Task findIn(List<TaskType> types, int identifier) {
+        for (TaskType taskType : types) {
+            Task task = mapOf(taskType).get(identifier);
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private TaskType typeOf(IntObjectMap<? extends Task> map) {
+        if (map == taskMap) {
+            return TaskType.TASK;
+        } else if (map == epicMap) {
+            return TaskType.EPIC;
+        }
+        return TaskType.SUBTASK;
+    }
+
+    // Запоминание подзадач и статуса эпика перед первым изменением в транзакции
+    private void touch(Epic epic) {
+        if (transaction != null) {
+            transaction.touch(epic);
+        }
+    }
+
+    // В транзакции статус эпика пересчитывается один раз при фиксации
+    private void refreshEpicStatus(Epic epic) {
+        if (transaction != null) {
+            transaction.markStale(epic);
+        } else {
+            refreshStatus(epic);
+        }
+    }
+
+    // Пересчет статуса эпика с индексацией и событием, если статус эпика из таблицы изменился
+    private void refreshStatus(Epic epic) {
+        TaskStatus previous = epic.getTaskStatus();
+        epic.refreshStatus();
+        reindexEpic(epic);
+        if (previous != epic.getTaskStatus() && events.isActive() && epicMap.get(epic.getTaskId()) == epic) {
+            publish(TaskEvent.epicStatusChanged(epic, previous));
+        }
+    }
+
+    // В транзакции событие откладывается до фиксации и отбрасывается при откате
+    private void publish(TaskEvent event) {
+        if (transaction != null) {
+            transaction.defer(event);
+        } else {
+            events.publish(event);
+        }
+    }
+
+    // Индексация эпика после пересчета статуса. Эпик, которого нет в таблице (прежняя версия
+    // после updateEpic или эпик, не созданный через менеджер), в индекс не попадает
+    private void reindexEpic(Epic epic) {
+        if (epicMap.get(epic.getTaskId()) == epic) {
+            statusIndex.add(TaskType.EPIC, epic);
+        }
+    }
 
-        if (isAllDone) {
-            epic.setTaskStatus(TaskStatus.DONE);
-        } else if (isAllNew) {
-            epic.setTaskStatus(TaskStatus.NEW);
+    // В транзакции задачи удаляются из истории только при фиксации
+    private void removeFromHistory(int identifier) {
+        if (transaction != null) {
+            transaction.removeFromHistory(identifier);
         } else {
-            epic.setTaskStatus(TaskStatus.IN_PROGRESS);
+            historyManager.removeFromHistory(identifier);
         }
     }
 }
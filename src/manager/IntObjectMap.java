@@ -0,0 +1,454 @@
+package manager;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+// Таблица с ключами int: открытая адресация с линейным пробированием по массивам int[] и Object[].
+// Методы с ключом int работают без упаковки ключа и без объекта узла на каждую запись.
+// Пустая ячейка - ячейка со значением null, поэтому значения null не допускаются.
+// Удаление сдвигает следующие записи цепочки назад, поэтому таблица не копит удаленные ячейки,
+// а при заполнении меньше 1/8 порога расширения remove(int) и clear сжимают таблицу.
+// Методы Map с ключом Integer сохранены для совместимости. Не потокобезопасна
+public final class IntObjectMap<V> extends AbstractMap<Integer, V> {
+    private static final int MIN_CAPACITY = 8;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeAt; // Размер, при превышении которого таблица расширяется вдвое
+    // Наибольшее смещение записи от домашней ячейки, не уменьшается до перестроения таблицы.
+    // Дальше этого расстояния поиск и сдвиг при удалении не идут: последовательные ID образуют
+    // одну длинную цепочку без смещений, и без этой границы удаление просматривало бы ее до конца
+    private int maxDistance;
+
+    private Set<Integer> keySet;
+    private Collection<V> valueCollection;
+    private Set<Map.Entry<Integer, V>> entrySet;
+
+    public IntObjectMap() {
+        this(0);
+    }
+
+    // Таблица, в которую expectedSize записей помещаются без расширения
+    public IntObjectMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Размер таблицы не может быть отрицательным");
+        }
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.ceil(expectedSize / (double) LOAD_FACTOR) + 1;
+        if (needed > 1 << 30) {
+            throw new IllegalArgumentException("Слишком большой размер таблицы: " + expectedSize);
+        }
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) needed - 1) << 1);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+        maxDistance = 0;
+    }
+
+    // Перемешивание как в HashMap: последовательные ID без коллизий занимают соседние ячейки,
+    // поэтому порядок обхода небольших таблиц остается тем же, что и у HashMap, - по возрастанию ID
+    private int slot(int key) {
+        return (key ^ (key >>> 16)) & mask;
+    }
+
+    // Ячейка ключа или -1
+    private int indexOf(int key) {
+        int i = slot(key);
+        for (int distance = 0; distance <= maxDistance && values[i] != null; distance++) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        Objects.requireNonNull(value, "Значение не может быть null");
+
+        int index = indexOf(key);
+        if (index >= 0) {
+            V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        insert(key, value);
+        if (++size > resizeAt) {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+
+        V previous = (V) values[index];
+        removeAt(index, null);
+        if (size < resizeAt >>> 3 && keys.length > MIN_CAPACITY) {
+            rehash(capacityFor(size)); // Обход таблицы остается пропорционален числу записей
+        }
+        return previous;
+    }
+
+    public V computeIfAbsent(int key, IntFunction<? extends V> mappingFunction) {
+        V value = get(key);
+        if (value == null) {
+            value = mappingFunction.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        if (keys.length > MIN_CAPACITY) {
+            allocate(MIN_CAPACITY);
+        } else {
+            Arrays.fill(values, null);
+            maxDistance = 0;
+        }
+        size = 0;
+    }
+
+    /*
+     *  Методы Map с упакованным ключом
+     */
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Integer identifier ? get(identifier.intValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer identifier && containsKey(identifier.intValue());
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put(key.intValue(), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Integer identifier ? remove(identifier.intValue()) : null;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (Object current : values) {
+            if (current != null && current.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void putAll(Map<? extends Integer, ? extends V> map) {
+        if (!(map instanceof IntObjectMap<?> other)) {
+            super.putAll(map);
+            return;
+        }
+
+        if (size + other.size > resizeAt) {
+            rehash(capacityFor(size + other.size));
+        }
+        for (int i = 0; i < other.values.length; i++) {
+            if (other.values[i] != null) {
+                put(other.keys[i], (V) other.values[i]);
+            }
+        }
+    }
+
+    @Override
+    public Set<Integer> keySet() {
+        if (keySet == null) {
+            keySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Integer> iterator() {
+                    return new SlotIterator<>() {
+                        @Override
+                        Integer element(int key, Object value) {
+                            return key;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean contains(Object key) {
+                    return containsKey(key);
+                }
+            };
+        }
+        return keySet;
+    }
+
+    @Override
+    public Collection<V> values() {
+        if (valueCollection == null) {
+            valueCollection = new AbstractCollection<>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return new SlotIterator<>() {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        V element(int key, Object value) {
+                            return (V) value;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                // Копирование значений одним проходом по массиву, используется new ArrayList<>(values())
+                @Override
+                public Object[] toArray() {
+                    Object[] result = new Object[size];
+                    int count = 0;
+                    for (Object value : values) {
+                        if (value != null) {
+                            result[count++] = value;
+                        }
+                    }
+                    return result;
+                }
+            };
+        }
+        return valueCollection;
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<Integer, V>> iterator() {
+                    return new SlotIterator<>() {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        Map.Entry<Integer, V> element(int key, Object value) {
+                            return new WriteThroughEntry(key, (V) value);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    // Запись в первую свободную ячейку цепочки, ключа в таблице нет
+    private void insert(int key, Object value) {
+        int i = slot(key);
+        int distance = 0;
+        while (values[i] != null) {
+            i = (i + 1) & mask;
+            distance++;
+        }
+        keys[i] = key;
+        values[i] = value;
+        maxDistance = Math.max(maxDistance, distance);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    // Удаление со сдвигом: запись цепочки переносится в освободившуюся ячейку, если ее домашняя ячейка
+    // не лежит между освободившейся ячейкой и текущей позицией. Записи дальше maxDistance от освободившейся
+    // ячейки не могут иметь домашнюю ячейку до нее
+    private void removeAt(int gap, SlotIterator<?> iterator) {
+        size--;
+        for (int i = (gap + 1) & mask; values[i] != null && ((i - gap) & mask) <= maxDistance; i = (i + 1) & mask) {
+            if (((i - slot(keys[i])) & mask) >= ((i - gap) & mask)) {
+                if (iterator != null) {
+                    iterator.moved(i, gap);
+                }
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = null;
+    }
+
+    // Обход ячеек по возрастанию. После удаления через итератор освободившаяся ячейка просматривается снова:
+    // сдвиг мог перенести в нее еще не пройденную запись. Запись, перенесенная из пройденного начала таблицы
+    // в непройденный конец при переходе цепочки через конец таблицы, запоминается и пропускается
+    private abstract class SlotIterator<T> implements Iterator<T> {
+        private int index = -1; // Ячейки выше index еще не пройдены
+        private int next = -2;  // Следующая занятая ячейка, -1 - нет, -2 - не искалась
+        private int last = -1;  // Ячейка последней возвращенной записи
+        private int[] skippedKeys;
+        private int skippedCount;
+
+        abstract T element(int key, Object value);
+
+        @Override
+        public boolean hasNext() {
+            if (next == -2) {
+                next = index + 1;
+                while (next < values.length && (values[next] == null || isSkipped(keys[next]))) {
+                    next++;
+                }
+                if (next == values.length) {
+                    next = -1;
+                }
+            }
+            return next >= 0;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            index = next;
+            next = -2;
+            last = index;
+            return element(keys[index], values[index]);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+
+            removeAt(last, this);
+            index = last - 1;
+            next = -2;
+            last = -1;
+        }
+
+        // Запись переносится сдвигом из ячейки from в ячейку to
+        private void moved(int from, int to) {
+            if (from < last && to >= last) {
+                if (skippedKeys == null) {
+                    skippedKeys = new int[4];
+                } else if (skippedCount == skippedKeys.length) {
+                    skippedKeys = Arrays.copyOf(skippedKeys, skippedCount * 2);
+                }
+                skippedKeys[skippedCount++] = keys[from];
+            }
+        }
+
+        // Уже возвращенная запись, перенесенная в непройденную ячейку, пропускается один раз
+        private boolean isSkipped(int key) {
+            for (int i = 0; i < skippedCount; i++) {
+                if (skippedKeys[i] == key) {
+                    skippedKeys[i] = skippedKeys[--skippedCount];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Запись таблицы, setValue изменяет таблицу. Равенство и хеш - по контракту Map.Entry
+    private final class WriteThroughEntry implements Entry<Integer, V> {
+        private final int key;
+        private V value;
+
+        private WriteThroughEntry(int key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Integer getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            put(key, value);
+            V previous = this.value;
+            this.value = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Entry<?, ?> entry
+                    && Objects.equals(key, entry.getKey())
+                    && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
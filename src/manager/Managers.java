@@ -8,8 +8,33 @@ public class Managers {
         return new FileBackedTaskManager(new File("task.csv"));
     }
 
+    // Потокобезопасный менеджер для работы из нескольких потоков, хранит задачи только в памяти
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
+    // Потокобезопасный менеджер для нагрузки, где чтений намного больше, чем изменений
+    public static TaskManager getReadOptimized() {
+        return new StampedTaskManager();
+    }
+
+    // История без ограничения размера
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
 
+    // История на capacity последних просмотренных задач, более давние просмотры вытесняются
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
+    // Потокобезопасная история: просмотры из разных потоков не ждут друг друга
+    public static HistoryManager getConcurrentHistory() {
+        return new ConcurrentHistoryManager();
+    }
+
+    public static HistoryManager getConcurrentHistory(int capacity) {
+        return new ConcurrentHistoryManager(new InMemoryHistoryManager(capacity));
+    }
+
 }
@@ -0,0 +1,197 @@
+package manager;
+
+import tasks.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+// Чтение файла задач через отображение в память (FileChannel.map).
+// Файл отображается окнами, границы окон выравниваются по границам записей,
+// строки CSV разбираются прямо из байтов через CsvCodec.
+// Большие окна CSV делятся на куски по границам строк, которые разбираются параллельно в пуле ForkJoin
+class MappedTaskReader {
+    static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+    static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+    private final long windowSize;
+    private final int chunkSize;
+    private final CsvCodec codec = new CsvCodec(); // Разбор строк CSV прямо из байтов окна
+
+    MappedTaskReader() {
+        this(DEFAULT_WINDOW_SIZE, DEFAULT_CHUNK_SIZE);
+    }
+
+    MappedTaskReader(long windowSize, int chunkSize) {
+        this.windowSize = Math.min(windowSize, Integer.MAX_VALUE);
+        this.chunkSize = chunkSize;
+    }
+
+    // Последовательное чтение всех задач файла в порядке их следования
+    void read(File file, Consumer<Task> consumer) throws IOException {
+        new MappedTaskReader(windowSize, Integer.MAX_VALUE).readChunks(file, () -> consumer);
+    }
+
+    // Чтение файла кусками: для каждого куска создается свой получатель, куски разбираются параллельно.
+    // Получатели возвращаются в порядке следования кусков в файле. Формат определяется по заголовку
+    <C extends Consumer<Task>> List<C> readChunks(File file, Supplier<C> chunkFactory) throws IOException {
+        List<C> results = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return results;
+            }
+
+            MappedByteBuffer window = map(channel, 0, size);
+            if (BinaryFormatter.isBinary(window)) {
+                // Записи двоичного формата не имеют разделителей, поэтому читаются последовательно
+                C consumer = chunkFactory.get();
+                readBinary(channel, size, window, consumer);
+                results.add(consumer);
+            } else {
+                readCsv(channel, size, window, chunkFactory, results);
+            }
+        }
+        return results;
+    }
+
+    private MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+    }
+
+    private void readBinary(FileChannel channel, long size, MappedByteBuffer window,
+                            Consumer<Task> consumer) throws IOException {
+        int count = BinaryFormatter.readHeader(window);
+        long windowStart = 0;
+
+        for (int i = 0; i < count; i++) {
+            int recordStart = window.position();
+            try {
+                consumer.accept(BinaryFormatter.read(window));
+            } catch (IllegalArgumentException e) {
+                // Запись не поместилась в окно: окно сдвигается на начало записи
+                boolean isLastWindow = windowStart + window.limit() >= size;
+                if (isLastWindow || recordStart == 0) {
+                    throw e;
+                }
+                windowStart += recordStart;
+                window = map(channel, windowStart, size);
+                i--;
+            }
+        }
+    }
+
+    private <C extends Consumer<Task>> void readCsv(FileChannel channel, long size, MappedByteBuffer window,
+                                                    Supplier<C> chunkFactory, List<C> results) throws IOException {
+        long windowStart = 0;
+        boolean isHeader = true;
+
+        while (true) {
+            int limit = window.limit();
+            boolean isLastWindow = windowStart + limit >= size;
+
+            int start = 0;
+            if (isHeader) {
+                start = Math.min(limit, indexOf(window, 0, limit, (byte) '\n') + 1); // Пропуск заголовка
+                isHeader = false;
+            }
+
+            // В окно попадают только целые записи
+            List<Integer> bounds = recordBounds(window, start, limit, isLastWindow);
+            int end = bounds.getLast();
+            if (end == 0 && !isLastWindow) {
+                throw new IllegalArgumentException("Строка длиннее окна отображения файла");
+            }
+            parseChunks(window, bounds, chunkFactory, results);
+
+            if (isLastWindow) {
+                return;
+            }
+            windowStart += end;
+            window = map(channel, windowStart, size);
+        }
+    }
+
+    // Один проход по окну: границы кусков ставятся не реже chunkSize и только между записями,
+    // переводы строк внутри полей в кавычках пропускаются. Последняя граница - конец целых записей окна
+    private List<Integer> recordBounds(ByteBuffer window, int start, int limit, boolean isLastWindow) {
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(start);
+        int recordEnd = start;
+        boolean isQuoted = false;
+        for (int i = start; i < limit; i++) {
+            byte b = window.get(i);
+            if (b == '"') {
+                isQuoted = !isQuoted;
+            } else if (b == '\n' && !isQuoted) {
+                recordEnd = i + 1;
+                if (recordEnd - bounds.getLast() >= chunkSize) {
+                    bounds.add(recordEnd);
+                }
+            }
+        }
+
+        int end = isLastWindow ? limit : recordEnd;
+        if (bounds.getLast() != end) {
+            bounds.add(end);
+        }
+        return bounds;
+    }
+
+    // Разбор кусков окна: один кусок разбирается в вызывающем потоке, несколько - параллельно
+    private <C extends Consumer<Task>> void parseChunks(ByteBuffer window, List<Integer> bounds,
+                                                        Supplier<C> chunkFactory, List<C> results) {
+        int chunkCount = bounds.size() - 1;
+        if (chunkCount == 0) {
+            return;
+        }
+        if (chunkCount == 1) {
+            C consumer = chunkFactory.get();
+            parseLines(window, bounds.getFirst(), bounds.getLast(), consumer);
+            results.add(consumer);
+            return;
+        }
+
+        List<C> consumers = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            consumers.add(chunkFactory.get());
+        }
+        // Параллельный поток делит номера кусков пополам в общем пуле ForkJoin. У каждого куска свои буферы разбора
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> new MappedTaskReader(windowSize, chunkSize)
+                .parseLines(window, bounds.get(chunk), bounds.get(chunk + 1), consumers.get(chunk)));
+        results.addAll(consumers);
+    }
+
+    // Разбор записей CSV в диапазоне [start, end), запись может занимать несколько строк
+    private void parseLines(ByteBuffer buffer, int start, int end, Consumer<Task> consumer) {
+        while (start < end) {
+            int lineEnd = CsvCodec.recordEnd(buffer, start, end);
+            int contentEnd = lineEnd;
+            if (contentEnd > start && buffer.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+
+            if (contentEnd > start) {
+                consumer.accept(codec.decode(buffer, start, contentEnd));
+            }
+            start = lineEnd + 1;
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return end;
+    }
+}
@@ -0,0 +1,7 @@
+package manager;
+
+// Формат основного файла с задачами
+public enum SnapshotFormat {
+    CSV,   // Текстовый формат CSVFormatter, подходит для выгрузки и ручного просмотра
+    BINARY // Компактный двоичный формат BinaryFormatter, быстрее сохраняется и загружается
+}
@@ -0,0 +1,305 @@
+package manager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// Потокобезопасная обертка менеджера для нагрузки, где чтений намного больше, чем изменений.
+// Поиск по ID и число задач в статусе читаются по оптимистичному штампу StampedLock без блокировки
+// и повторяются под блокировкой на чтение, только если за это время прошла запись. Списки, выборки и поиск
+// обходят таблицы и индексы и всегда берут блокировку на чтение. Изменения берут блокировку на запись.
+// История меняется и при чтении, поэтому она защищена отдельным монитором. Потоки и живые представления
+// берутся из методов по умолчанию: обход идет по копии, снятой под блокировкой, а не по таблицам менеджера
+public class StampedTaskManager implements TaskManager {
+    private final InMemoryTaskManager delegate;
+    private final StampedLock lock = new StampedLock();
+    private final Object historyLock = new Object();
+
+    public StampedTaskManager() {
+        this(new InMemoryTaskManager());
+    }
+
+    // Менеджер не должен использоваться напрямую после передачи в обертку
+    public StampedTaskManager(InMemoryTaskManager delegate) {
+        this.delegate = delegate;
+    }
+
+    /*
+     *  Задачи
+     */
+
+    @Override
+    public void createNewTask(Task task) {
+        write(() -> delegate.createNewTask(task));
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return read(delegate::getTasks);
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        write(delegate::deleteAllTasks);
+    }
+
+    @Override
+    public Task updateTask(Task task) {
+        return write(() -> delegate.updateTask(task));
+    }
+
+    @Override
+    public Task getTaskById(int identifier) {
+        return viewed(lookup(() -> delegate.findTask(identifier)), delegate::findTask);
+    }
+
+    @Override
+    public Task deleteTaskById(int identifier) {
+        return write(() -> delegate.deleteTaskById(identifier));
+    }
+
+    /*
+     *  Эпики
+     */
+
+    @Override
+    public void createNewEpic(Epic epic) {
+        write(() -> delegate.createNewEpic(epic));
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return read(delegate::getEpics);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        write(delegate::deleteAllEpics);
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        return write(() -> delegate.updateEpic(epic));
+    }
+
+    @Override
+    public Epic getEpicById(int identifier) {
+        return viewed(lookup(() -> delegate.findEpic(identifier)), delegate::findEpic);
+    }
+
+    @Override
+    public Epic deleteEpicById(int identifier) {
+        return write(() -> delegate.deleteEpicById(identifier));
+    }
+
+    // Возвращается копия списка: список эпика меняется писателями
+    @Override
+    public List<Subtask> getEpicSubtasks(Epic epic) {
+        return read(() -> new ArrayList<>(delegate.getEpicSubtasks(epic)));
+    }
+
+    /*
+     *  Подзадачи
+     */
+
+    @Override
+    public void createNewSubtask(Epic epic, Subtask subtask) {
+        write(() -> delegate.createNewSubtask(epic, subtask));
+    }
+
+    @Override
+    public List<Subtask> getSubtasks() {
+        return read(delegate::getSubtasks);
+    }
+
+    @Override
+    public Subtask getSubtaskById(int identifier) {
+        return viewed(lookup(() -> delegate.findSubtask(identifier)), delegate::findSubtask);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        write(delegate::deleteAllSubtasks);
+    }
+
+    @Override
+    public Subtask deleteSubtaskById(int identifier) {
+        return write(() -> delegate.deleteSubtaskById(identifier));
+    }
+
+    @Override
+    public Subtask updateSubtask(Subtask subtask) {
+        return write(() -> delegate.updateSubtask(subtask));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        synchronized (historyLock) {
+            return delegate.getHistory();
+        }
+    }
+
+    @Override
+    public List<Task> getTasks(int afterId, int limit) {
+        return read(() -> delegate.getTasks(afterId, limit));
+    }
+
+    @Override
+    public List<Epic> getEpics(int afterId, int limit) {
+        return read(() -> delegate.getEpics(afterId, limit));
+    }
+
+    @Override
+    public List<Subtask> getSubtasks(int afterId, int limit) {
+        return read(() -> delegate.getSubtasks(afterId, limit));
+    }
+
+    @Override
+    public List<Task> getByStatus(TaskType taskType, TaskStatus taskStatus) {
+        return read(() -> delegate.getByStatus(taskType, taskStatus));
+    }
+
+    @Override
+    public int countByStatus(TaskType taskType, TaskStatus taskStatus) {
+        return lookup(() -> delegate.countByStatus(taskType, taskStatus));
+    }
+
+    @Override
+    public List<Task> searchAll(String query) {
+        return read(() -> delegate.searchAll(query));
+    }
+
+    @Override
+    public List<Task> searchAny(String query) {
+        return read(() -> delegate.searchAny(query));
+    }
+
+    // План составляется по индексам обернутого менеджера. Источники плана читаются только в find под блокировкой
+    @Override
+    public TaskQuery.Plan plan(TaskQuery query) {
+        return read(() -> delegate.plan(query));
+    }
+
+    @Override
+    public List<Task> find(TaskQuery query) {
+        return read(() -> delegate.find(query));
+    }
+
+    // Изменения получают обернутый менеджер: блокировка на запись уже взята и не допускает повторного входа
+    @Override
+    public void inTransaction(Consumer<TaskManager> changes) {
+        write(() -> delegate.inTransaction(changes));
+    }
+
+    /*
+     *  Массовые операции выполняются обернутым менеджером под одной блокировкой на запись
+     */
+
+    @Override
+    public void createNewTasks(Collection<? extends Task> tasks) {
+        write(() -> delegate.createNewTasks(tasks));
+    }
+
+    @Override
+    public void createNewEpics(Collection<Epic> epics) {
+        write(() -> delegate.createNewEpics(epics));
+    }
+
+    @Override
+    public void createNewSubtasks(Epic epic, Collection<Subtask> subtasks) {
+        write(() -> delegate.createNewSubtasks(epic, subtasks));
+    }
+
+    @Override
+    public List<Task> updateTasks(Collection<? extends Task> tasks) {
+        return write(() -> delegate.updateTasks(tasks));
+    }
+
+    @Override
+    public List<Subtask> updateSubtasks(Collection<Subtask> subtasks) {
+        return write(() -> delegate.updateSubtasks(subtasks));
+    }
+
+    @Override
+    public List<Task> deleteByIds(int[] identifiers) {
+        return write(() -> delegate.deleteByIds(identifiers));
+    }
+
+    /*
+     *  Блокировки
+     */
+
+    // Оптимистичное чтение для поиска с ограниченным числом шагов: поиска по ID и размера таблицы.
+    // При одновременной записи таблицы могут быть в промежуточном состоянии, поэтому исключение
+    // при чтении по штампу тоже считается неудачной проверкой. Обход таблиц или индексов по штампу
+    // может не завершиться на разорванных данных, поэтому для него есть только read
+    private <T> T lookup(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException ignored) {
+                // Чтение повторяется под блокировкой и при настоящей ошибке выбросит исключение снова
+            }
+        }
+
+        return read(reader);
+    }
+
+    // Чтение под блокировкой на чтение
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Изменение под блокировкой на запись. Менеджер удаляет задачи из истории, поэтому берется и ее монитор
+    private <T> T write(Supplier<T> writer) {
+        long stamp = lock.writeLock();
+        try {
+            synchronized (historyLock) {
+                return writer.get();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void write(Runnable writer) {
+        write(() -> {
+            writer.run();
+            return null;
+        });
+    }
+
+    // Запись просмотра в историю после чтения, без удержания штампа. Писатели держат монитор истории,
+    // поэтому под ним видно, не удалена ли задача после чтения: удаленная в историю не попадает
+    private <T extends Task> T viewed(T task, IntFunction<T> finder) {
+        if (task == null) {
+            return null;
+        }
+
+        synchronized (historyLock) {
+            if (finder.apply(task.getTaskId()) != null) {
+                delegate.addInHistory(task);
+            }
+        }
+        return task;
+    }
+}
@@ -0,0 +1,85 @@
+package manager;
+
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+
+// Вторичный индекс задач по типу и статусу: для каждой пары своя таблица ID -> задача.
+// Задача лежит не более чем в одной таблице своего типа - по статусу на момент последней индексации.
+// Этот статус запоминается, и задача удаляется из его таблицы, а не из таблицы текущего статуса объекта:
+// статус мог измениться на месте до обновления задачи в менеджере. Задачи без статуса не индексируются.
+// Таблицы сжимаются при удалении, поэтому выборка пропорциональна ее размеру.
+// Не потокобезопасен
+class StatusIndex {
+    private final EnumMap<TaskType, EnumMap<TaskStatus, IntObjectMap<Task>>> buckets = new EnumMap<>(TaskType.class);
+    private final EnumMap<TaskType, IntObjectMap<TaskStatus>> indexed = new EnumMap<>(TaskType.class); // ID -> статус таблицы
+
+    StatusIndex() {
+        for (TaskType taskType : TaskType.values()) {
+            EnumMap<TaskStatus, IntObjectMap<Task>> typeBuckets = new EnumMap<>(TaskStatus.class);
+            for (TaskStatus taskStatus : TaskStatus.values()) {
+                typeBuckets.put(taskStatus, new IntObjectMap<>());
+            }
+            buckets.put(taskType, typeBuckets);
+            indexed.put(taskType, new IntObjectMap<>());
+        }
+    }
+
+    // Индексация задачи по ее текущему статусу с удалением из таблицы прежнего статуса
+    void add(TaskType taskType, Task task) {
+        int identifier = task.getTaskId();
+        TaskStatus status = task.getTaskStatus();
+        if (status == null) {
+            remove(taskType, identifier);
+            return;
+        }
+
+        TaskStatus previous = indexed.get(taskType).put(identifier, status);
+        if (previous != null && previous != status) {
+            buckets.get(taskType).get(previous).remove(identifier);
+        }
+        buckets.get(taskType).get(status).put(identifier, task);
+    }
+
+    void remove(TaskType taskType, int identifier) {
+        TaskStatus previous = indexed.get(taskType).remove(identifier);
+        if (previous != null) {
+            buckets.get(taskType).get(previous).remove(identifier);
+        }
+    }
+
+    // Приведение индекса к таблице менеджера: task - текущее значение ID в таблице или null
+    void update(TaskType taskType, int identifier, Task task) {
+        if (task == null) {
+            remove(taskType, identifier);
+        } else {
+            add(taskType, task);
+        }
+    }
+
+    void clear(TaskType taskType) {
+        for (IntObjectMap<Task> bucket : buckets.get(taskType).values()) {
+            bucket.clear();
+        }
+        indexed.get(taskType).clear();
+    }
+
+    // Копия задач типа в статусе
+    List<Task> get(TaskType taskType, TaskStatus taskStatus) {
+        return new ArrayList<>(buckets.get(taskType).get(taskStatus).values());
+    }
+
+    // Задачи типа в статусе без копии. Представление меняется вместе с индексом
+    Collection<Task> view(TaskType taskType, TaskStatus taskStatus) {
+        return buckets.get(taskType).get(taskStatus).values();
+    }
+
+    int count(TaskType taskType, TaskStatus taskStatus) {
+        return buckets.get(taskType).get(taskStatus).size();
+    }
+}
@@ -0,0 +1,132 @@
+package manager;
+
+// Настройки файлового хранилища FileBackedTaskManager
+public class StorageSettings {
+    private boolean journaled; // Режим журнала изменений вместо полной перезаписи файла
+    private long compactAfterRecords = 100_000; // Порог числа записей журнала для фонового сжатия
+    private long compactAfterBytes = 64L * 1024 * 1024; // Порог размера журнала для фонового сжатия
+    private Durability durability = Durability.BUFFERED;
+    private long groupCommitDelayMillis = 5; // Максимальное ожидание группы перед fsync
+    private int groupCommitMaxRecords = 256; // Число записей, при котором fsync выполняется без ожидания
+    private int writeBehindCapacity; // Размер очереди отложенной записи, 0 - запись в вызывающем потоке
+    private SnapshotFormat snapshotFormat = SnapshotFormat.CSV;
+
+    private StorageSettings(boolean journaled) {
+        this.journaled = journaled;
+    }
+
+    // Каждое изменение перезаписывает файл целиком
+    public static StorageSettings snapshot() {
+        return new StorageSettings(false);
+    }
+
+    // Каждое изменение дописывается одной записью в журнал рядом с файлом
+    public static StorageSettings journal() {
+        return new StorageSettings(true);
+    }
+
+    public boolean isJournaled() {
+        return journaled;
+    }
+
+    public StorageSettings setJournaled(boolean journaled) {
+        this.journaled = journaled;
+        return this;
+    }
+
+    public long getCompactAfterRecords() {
+        return compactAfterRecords;
+    }
+
+    // 0 отключает сжатие по числу записей
+    public StorageSettings setCompactAfterRecords(long compactAfterRecords) {
+        if (compactAfterRecords < 0) {
+            throw new IllegalArgumentException("Порог сжатия не может быть отрицательным");
+        }
+        this.compactAfterRecords = compactAfterRecords;
+        return this;
+    }
+
+    public long getCompactAfterBytes() {
+        return compactAfterBytes;
+    }
+
+    // 0 отключает сжатие по размеру журнала
+    public StorageSettings setCompactAfterBytes(long compactAfterBytes) {
+        if (compactAfterBytes < 0) {
+            throw new IllegalArgumentException("Порог сжатия не может быть отрицательным");
+        }
+        this.compactAfterBytes = compactAfterBytes;
+        return this;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    // В режиме полной перезаписи файла GROUP_COMMIT равносилен PER_OPERATION
+    public StorageSettings setDurability(Durability durability) {
+        if (durability == null) {
+            throw new IllegalArgumentException("Режим сохранности не может быть null");
+        }
+        this.durability = durability;
+        return this;
+    }
+
+    public long getGroupCommitDelayMillis() {
+        return groupCommitDelayMillis;
+    }
+
+    public int getGroupCommitMaxRecords() {
+        return groupCommitMaxRecords;
+    }
+
+    // fsync группы выполняется через delayMillis после первой записи или сразу после maxRecords записей
+    public StorageSettings setGroupCommit(long delayMillis, int maxRecords) {
+        if (delayMillis < 0 || maxRecords <= 0) {
+            throw new IllegalArgumentException("Неверные параметры группового сохранения");
+        }
+        this.groupCommitDelayMillis = delayMillis;
+        this.groupCommitMaxRecords = maxRecords;
+        return this;
+    }
+
+    public int getWriteBehindCapacity() {
+        return writeBehindCapacity;
+    }
+
+    // Изменения возвращаются сразу, журнал пишет отдельный поток. Требует режима журнала
+    public StorageSettings setWriteBehind(int queueCapacity) {
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("Размер очереди не может быть отрицательным");
+        }
+        this.writeBehindCapacity = queueCapacity;
+        return this;
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    // Формат, в котором сохраняется основной файл. При загрузке формат определяется по заголовку файла
+    public StorageSettings setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        if (snapshotFormat == null) {
+            throw new IllegalArgumentException("Формат файла не может быть null");
+        }
+        this.snapshotFormat = snapshotFormat;
+        return this;
+    }
+
+    // Копия настроек, чтобы их изменение не затрагивало уже созданный менеджер
+    StorageSettings copy() {
+        StorageSettings copy = new StorageSettings(journaled);
+        copy.compactAfterRecords = compactAfterRecords;
+        copy.compactAfterBytes = compactAfterBytes;
+        copy.durability = durability;
+        copy.groupCommitDelayMillis = groupCommitDelayMillis;
+        copy.groupCommitMaxRecords = groupCommitMaxRecords;
+        copy.writeBehindCapacity = writeBehindCapacity;
+        copy.snapshotFormat = snapshotFormat;
+        return copy;
+    }
+}
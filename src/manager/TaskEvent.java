@@ -0,0 +1,110 @@
+package manager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.util.Objects;
+
+// Событие изменения в менеджере: ID и изменившиеся поля, без копии задачи.
+// Для создания задан только новый статус, для удаления - только прежний
+public final class TaskEvent {
+    public enum Kind {
+        CREATED,
+        UPDATED,
+        DELETED,
+        EPIC_STATUS_CHANGED // Статус эпика пересчитан по подзадачам и изменился
+    }
+
+    private final Kind kind;
+    private final TaskType taskType;
+    private final int taskId;
+    private final int epicId; // Эпик подзадачи, 0 для задач и эпиков
+    private final TaskStatus previousStatus;
+    private final TaskStatus status;
+    private final boolean nameChanged;
+    private final boolean descriptionChanged;
+
+    private TaskEvent(Kind kind, TaskType taskType, Task task, TaskStatus previousStatus, TaskStatus status,
+                      boolean nameChanged, boolean descriptionChanged) {
+        this.kind = kind;
+        this.taskType = taskType;
+        this.taskId = task.getTaskId();
+        this.epicId = task instanceof Subtask subtask ? subtask.getEpicIdentifier() : 0;
+        this.previousStatus = previousStatus;
+        this.status = status;
+        this.nameChanged = nameChanged;
+        this.descriptionChanged = descriptionChanged;
+    }
+
+    static TaskEvent created(TaskType taskType, Task task) {
+        return new TaskEvent(Kind.CREATED, taskType, task, null, task.getTaskStatus(), true, true);
+    }
+
+    // Замена задачи с тем же ID: previous - прежнее значение в таблице
+    static TaskEvent updated(TaskType taskType, Task previous, Task task) {
+        return new TaskEvent(Kind.UPDATED, taskType, task, previous.getTaskStatus(), task.getTaskStatus(),
+                !Objects.equals(previous.getTaskName(), task.getTaskName()),
+                !Objects.equals(previous.getTaskDescription(), task.getTaskDescription()));
+    }
+
+    static TaskEvent deleted(TaskType taskType, Task task) {
+        return new TaskEvent(Kind.DELETED, taskType, task, task.getTaskStatus(), null, false, false);
+    }
+
+    static TaskEvent epicStatusChanged(Epic epic, TaskStatus previousStatus) {
+        return new TaskEvent(Kind.EPIC_STATUS_CHANGED, TaskType.EPIC, epic, previousStatus, epic.getTaskStatus(),
+                false, false);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public TaskType getTaskType() {
+        return taskType;
+    }
+
+    public int getTaskId() {
+        return taskId;
+    }
+
+    public int getEpicId() {
+        return epicId;
+    }
+
+    // Статус до изменения, null для создания
+    public TaskStatus getPreviousStatus() {
+        return previousStatus;
+    }
+
+    // Статус после изменения, null для удаления
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    public boolean isStatusChanged() {
+        return previousStatus != status;
+    }
+
+    public boolean isNameChanged() {
+        return nameChanged;
+    }
+
+    public boolean isDescriptionChanged() {
+        return descriptionChanged;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskEvent{" +
+                "kind = " + kind +
+                ", taskType = " + taskType +
+                ", taskId = " + taskId +
+                (epicId != 0 ? ", epicId = " + epicId : "") +
+                ", status = " + previousStatus + " -> " + status +
+                '}';
+    }
+}
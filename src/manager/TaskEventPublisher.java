@@ -0,0 +1,110 @@
+package manager;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Рассылка событий менеджера подписчикам через SubmissionPublisher: у каждого подписчика свой ограниченный
+// буфер, события доставляются в потоках executor по мере запросов подписчика. Публикация никогда не ждет:
+// если буфер подписчика заполнен, событие для него отбрасывается, а подписка завершается ошибкой
+// при следующей доставке, потому что подписчик пропустил событие и должен заново прочитать задачи
+class TaskEventPublisher implements Flow.Publisher<TaskEvent>, AutoCloseable {
+    private final SubmissionPublisher<TaskEvent> publisher;
+    private final AtomicInteger subscribers = new AtomicInteger(); // Подписки, еще не завершенные
+
+    TaskEventPublisher(Executor executor, int bufferCapacity) {
+        this.publisher = new SubmissionPublisher<>(executor, bufferCapacity);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super TaskEvent> subscriber) {
+        subscribers.incrementAndGet();
+        publisher.subscribe(new GuardedSubscriber(subscriber));
+    }
+
+    // Есть ли подписчики. Без них менеджер не создает события
+    boolean isActive() {
+        return subscribers.get() > 0;
+    }
+
+    void publish(TaskEvent event) {
+        publisher.offer(event, (subscriber, dropped) -> {
+            ((GuardedSubscriber) subscriber).overflowed = true;
+            return false;
+        });
+    }
+
+    // Завершение всех подписок после доставки уже опубликованных событий
+    @Override
+    public void close() {
+        publisher.close();
+    }
+
+    // Подписчик-посредник: отслеживает завершение подписки и переполнение буфера
+    private final class GuardedSubscriber implements Flow.Subscriber<TaskEvent>, Flow.Subscription {
+        private final Flow.Subscriber<? super TaskEvent> subscriber;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private Flow.Subscription subscription;
+        private volatile boolean overflowed;
+
+        private GuardedSubscriber(Flow.Subscriber<? super TaskEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(TaskEvent event) {
+            if (finished.get()) {
+                return;
+            }
+            if (overflowed) {
+                if (finish()) {
+                    subscription.cancel();
+                    subscriber.onError(new IllegalStateException("Буфер событий подписчика переполнен"));
+                }
+                return;
+            }
+            subscriber.onNext(event);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (finish()) {
+                subscriber.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (finish()) {
+                subscriber.onComplete();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            subscription.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            finish();
+            subscription.cancel();
+        }
+
+        private boolean finish() {
+            if (finished.compareAndSet(false, true)) {
+                subscribers.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package manager;
+
+import tasks.Task;
+import tasks.TaskType;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Журнал изменений: каждое изменение менеджера дописывается в конец файла одной короткой записью.
+// При сжатии активный файл журнала переименовывается в сегмент с номером, а записи продолжаются в новый файл
+class TaskJournal implements Closeable {
+    private static final char UPSERT = '+'; // Создание или обновление задачи, далее строка CSV
+    private static final char DELETE = '-'; // Удаление задачи по ID
+    private static final char CLEAR = '*';  // Удаление всех задач одного типа
+
+    private final File file;
+    private final Durability durability;
+    private final long groupCommitDelayNanos;
+    private final int groupCommitMaxRecords;
+    private FileChannel channel;
+    private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(8192); // Записи пишет один поток в каждый момент
+    private volatile long recordCount; // Число записей в активном файле журнала
+    private volatile long byteCount;   // Размер активного файла журнала
+
+    // Групповое сохранение: номера последней дописанной и последней сброшенной на диск записи
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Condition commitChanged = commitLock.newCondition();
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean isSyncing; // Один из ожидающих потоков выполняет fsync для всей группы
+
+    TaskJournal(File snapshotFile) {
+        this(snapshotFile, StorageSettings.journal());
+    }
+
+    TaskJournal(File snapshotFile, StorageSettings settings) {
+        this.file = journalFile(snapshotFile);
+        this.durability = settings.getDurability();
+        this.groupCommitDelayNanos = TimeUnit.MILLISECONDS.toNanos(settings.getGroupCommitDelayMillis());
+        this.groupCommitMaxRecords = settings.getGroupCommitMaxRecords();
+    }
+
+    // Файл журнала хранится рядом с основным файлом
+    static File journalFile(File snapshotFile) {
+        return new File(snapshotFile.getPath() + ".journal");
+    }
+
+    static String upsert(Task task) {
+        StringBuilder record = new StringBuilder(64).append(UPSERT).append(',');
+        try {
+            CsvCodec.encode(task, record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder не выбрасывает IOException
+        }
+        return record.toString();
+    }
+
+    static String delete(int identifier) {
+        return DELETE + "," + identifier;
+    }
+
+    static String clear(TaskType taskType) {
+        return CLEAR + "," + taskType;
+    }
+
+    // ID задачи, к которой относится запись, или -1 для очистки по типу
+    static int recordKey(String record) {
+        if (record.charAt(0) == CLEAR) {
+            return -1;
+        }
+        int end = record.indexOf(',', 2);
+        return Integer.parseInt(record, 2, end < 0 ? record.length() : end, 10);
+    }
+
+    // Дописывание записей в конец журнала одной операцией записи.
+    // Возвращает номер последней записи для ожидания в awaitDurable, 0 если ждать нечего
+    long append(List<String> records) throws IOException {
+        if (records.isEmpty()) {
+            return 0;
+        }
+
+        // Записи кодируются в UTF-8 прямо в переиспользуемый буфер
+        int length = 0;
+        for (String record : records) {
+            length += CsvCodec.utf8Length(record) + 1;
+        }
+        if (writeBuffer.capacity() < length) {
+            writeBuffer = ByteBuffer.allocateDirect(Math.max(length, writeBuffer.capacity() * 2));
+        }
+        ByteBuffer buffer = writeBuffer.clear();
+        for (String record : records) {
+            CsvCodec.putUtf8(buffer, record);
+            buffer.put((byte) '\n');
+        }
+        buffer.flip();
+
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        recordCount += records.size();
+        byteCount += length;
+
+        if (durability == Durability.PER_OPERATION) {
+            channel.force(false);
+        }
+
+        commitLock.lock();
+        try {
+            appendedSequence += records.size();
+            if (durability != Durability.GROUP_COMMIT) {
+                durableSequence = appendedSequence;
+                return 0;
+            }
+            commitChanged.signalAll();
+            return appendedSequence;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    // Ожидание fsync группы, в которую попала запись с номером sequence.
+    // Первый ожидающий поток собирает группу не дольше заданной задержки и выполняет fsync за всех
+    void awaitDurable(long sequence) throws IOException {
+        if (sequence == 0) {
+            return;
+        }
+
+        commitLock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (isSyncing) {
+                    commitChanged.awaitUninterruptibly();
+                    continue;
+                }
+
+                isSyncing = true;
+                try {
+                    long remaining = groupCommitDelayNanos;
+                    while (appendedSequence - durableSequence < groupCommitMaxRecords && remaining > 0) {
+                        remaining = commitChanged.awaitNanos(remaining);
+                    }
+
+                    long target = appendedSequence;
+                    FileChannel syncedChannel = channel;
+                    commitLock.unlock();
+                    try {
+                        if (syncedChannel != null) {
+                            syncedChannel.force(false);
+                        }
+                    } finally {
+                        commitLock.lock();
+                    }
+                    durableSequence = Math.max(durableSequence, target);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Ожидание группового сохранения прервано");
+                } finally {
+                    isSyncing = false;
+                    commitChanged.signalAll();
+                }
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    // Сброс на диск всего дописанного перед закрытием или переносом файла
+    private void syncAll() throws IOException {
+        commitLock.lock();
+        try {
+            while (isSyncing) {
+                commitChanged.awaitUninterruptibly();
+            }
+            if (channel != null && durability != Durability.BUFFERED) {
+                channel.force(false);
+            }
+            durableSequence = appendedSequence;
+            commitChanged.signalAll();
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    // Пора ли сжимать журнал по порогам из настроек
+    boolean isCompactionDue(StorageSettings settings) {
+        long maxRecords = settings.getCompactAfterRecords();
+        long maxBytes = settings.getCompactAfterBytes();
+        return (maxRecords > 0 && recordCount >= maxRecords) || (maxBytes > 0 && byteCount >= maxBytes);
+    }
+
+    // Перенос активного файла в сегмент со следующим номером, возвращает номер сегмента
+    int rotate() throws IOException {
+        close();
+
+        List<Integer> segments = segmentNumbers();
+        int segment = segments.isEmpty() ? 1 : segments.getLast() + 1;
+        if (file.exists()) {
+            Files.move(file.toPath(), segmentFile(segment).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        recordCount = 0;
+        byteCount = 0;
+        return segment;
+    }
+
+    // Удаление сегментов, записи которых уже вошли в снимок. Может вызываться из фонового потока
+    void deleteSegmentsUpTo(int segment) throws IOException {
+        for (int number : segmentNumbers()) {
+            if (number <= segment) {
+                Files.deleteIfExists(segmentFile(number).toPath());
+            }
+        }
+    }
+
+    // Очистка журнала, например после записи нового снимка
+    void reset() throws IOException {
+        close();
+        deleteSegmentsUpTo(Integer.MAX_VALUE);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        recordCount = 0;
+        byteCount = 0;
+    }
+
+    // Удаление журнала вместе со всеми сегментами
+    void delete() throws IOException {
+        close();
+        deleteSegmentsUpTo(Integer.MAX_VALUE);
+        Files.deleteIfExists(file.toPath());
+        recordCount = 0;
+        byteCount = 0;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            syncAll();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // Повторное применение сегментов и активного файла журнала в порядке добавления записей
+    void replay(Visitor visitor) throws IOException {
+        for (int segment : segmentNumbers()) {
+            replay(segmentFile(segment), visitor);
+        }
+
+        if (file.exists()) {
+            recordCount = replay(file, visitor);
+            byteCount = file.length();
+        }
+    }
+
+    // Недописанная при сбое последняя запись отбрасывается по байтам, до декодирования: обрыв мог прийтись
+    // на середину многобайтового символа. Файл обрезается до последней полной записи, чтобы следующие
+    // записи не продолжили оборванную строку
+    private static long replay(File journalFile, Visitor visitor) throws IOException {
+        byte[] bytes = Files.readAllBytes(journalFile.toPath());
+        int length = completeLength(ByteBuffer.wrap(bytes));
+        if (length < bytes.length) {
+            try (FileChannel truncated = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE)) {
+                truncated.truncate(length);
+            }
+        }
+
+        String content = StandardCharsets.UTF_8.newDecoder()
+                .decode(ByteBuffer.wrap(bytes, 0, length))
+                .toString();
+        long recordCount = 0;
+        int start = 0;
+
+        // Запись может занимать несколько строк, если в полях в кавычках есть переводы строк
+        while (start < content.length()) {
+            int end = CsvCodec.recordEnd(content, start, content.length());
+            recordCount++;
+            if (end > start) {
+                apply(content, start, end, visitor);
+            }
+            start = end + 1;
+        }
+        return recordCount;
+    }
+
+    // Длина в байтах до конца последней записи с переводом строки. Перевод строки и кавычка в UTF-8
+    // не встречаются внутри многобайтовых символов, поэтому границы записей ищутся без декодирования
+    private static int completeLength(ByteBuffer bytes) {
+        int start = 0;
+        while (start < bytes.limit()) {
+            int end = CsvCodec.recordEnd(bytes, start, bytes.limit());
+            if (end == bytes.limit()) {
+                break;
+            }
+            start = end + 1;
+        }
+        return start;
+    }
+
+    private static void apply(String content, int start, int end, Visitor visitor) {
+        if (end - start < 3 || content.charAt(start + 1) != ',') {
+            throw new IllegalArgumentException("Неверный формат записи журнала: " + content.substring(start, end));
+        }
+
+        switch (content.charAt(start)) {
+            case UPSERT -> visitor.upsert(CsvCodec.decode(content, start + 2, end));
+            case DELETE -> visitor.delete(Integer.parseInt(content, start + 2, end, 10));
+            case CLEAR -> visitor.clear(TaskType.valueOf(content.substring(start + 2, end)));
+            default -> throw new IllegalArgumentException("Неизвестный тип записи журнала: "
+                    + content.substring(start, end));
+        }
+    }
+
+    private File segmentFile(int segment) {
+        return new File(file.getPath() + "." + segment);
+    }
+
+    // Номера существующих сегментов по возрастанию
+    private List<Integer> segmentNumbers() {
+        List<Integer> numbers = new ArrayList<>();
+        File directory = file.getAbsoluteFile().getParentFile();
+        String prefix = file.getName() + ".";
+        String[] names = directory != null ? directory.list() : null;
+
+        if (names == null) {
+            return numbers;
+        }
+
+        for (String name : names) {
+            if (name.startsWith(prefix)) {
+                try {
+                    numbers.add(Integer.parseInt(name.substring(prefix.length())));
+                } catch (NumberFormatException ignored) {
+                    // Посторонний файл с похожим именем
+                }
+            }
+        }
+        numbers.sort(Comparator.naturalOrder());
+        return numbers;
+    }
+
+    // Получатель записей журнала при восстановлении
+    interface Visitor {
+        void upsert(Task task);
+
+        void delete(int identifier);
+
+        void clear(TaskType taskType);
+    }
+}
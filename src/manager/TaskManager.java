@@ -3,8 +3,14 @@ package manager;
 import tasks.Epic;
 import tasks.Subtask;
 import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
 
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface TaskManager {
     // Создание новой задачи
@@ -66,4 +72,222 @@ public interface TaskManager {
 
     // Возвращает историю
     List<Task> getHistory();
+
+    // Поток задач для однократного обхода. Реализации обходят таблицу без промежуточной копии,
+    // менеджер не должен изменяться, пока поток не обработан
+    default Stream<Task> streamTasks() {
+        return getTasks().stream();
+    }
+
+    // Поток эпиков
+    default Stream<Epic> streamEpics() {
+        return getEpics().stream();
+    }
+
+    // Поток подзадач
+    default Stream<Subtask> streamSubtasks() {
+        return getSubtasks().stream();
+    }
+
+    // Поток истории просмотров от давних к последним
+    default Stream<Task> streamHistory() {
+        return getHistory().stream();
+    }
+
+    // Неизменяемое живое представление задач: каждый обход видит текущее состояние менеджера.
+    // По умолчанию каждый обход получает копию через getTasks, реализации обходят таблицу напрямую
+    default Collection<Task> getTasksView() {
+        return liveView(this::getTasks);
+    }
+
+    // Неизменяемое живое представление эпиков
+    default Collection<Epic> getEpicsView() {
+        return liveView(this::getEpics);
+    }
+
+    // Неизменяемое живое представление подзадач
+    default Collection<Subtask> getSubtasksView() {
+        return liveView(this::getSubtasks);
+    }
+
+    private static <T extends Task> Collection<T> liveView(Supplier<List<T>> snapshot) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                return Collections.unmodifiableList(snapshot.get()).iterator();
+            }
+
+            @Override
+            public int size() {
+                return snapshot.get().size();
+            }
+        };
+    }
+
+    // Страница задач по возрастанию ID: не больше limit задач с ID больше afterId. Первая страница - afterId = 0,
+    // следующая - с ID последней задачи предыдущей страницы. Новые задачи получают большие ID,
+    // поэтому созданные между запросами страниц задачи не сдвигают и не повторяют уже прочитанные
+    default List<Task> getTasks(int afterId, int limit) {
+        return page(getTasks(), afterId, limit);
+    }
+
+    // Страница эпиков по возрастанию ID
+    default List<Epic> getEpics(int afterId, int limit) {
+        return page(getEpics(), afterId, limit);
+    }
+
+    // Страница подзадач по возрастанию ID
+    default List<Subtask> getSubtasks(int afterId, int limit) {
+        return page(getSubtasks(), afterId, limit);
+    }
+
+    // Страница из полного списка
+    private static <T extends Task> List<T> page(List<T> all, int afterId, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Размер страницы не может быть отрицательным");
+        }
+        return all.stream()
+                .filter(task -> task.getTaskId() > afterId)
+                .sorted(Comparator.comparingInt(Task::getTaskId))
+                .limit(limit)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    // Получение задач, эпиков или подзадач в заданном статусе
+    default List<Task> getByStatus(TaskType taskType, TaskStatus taskStatus) {
+        List<Task> result = new ArrayList<>();
+        for (Task task : listOf(taskType)) {
+            if (task.getTaskStatus() == taskStatus) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    // Число задач, эпиков или подзадач в заданном статусе
+    default int countByStatus(TaskType taskType, TaskStatus taskStatus) {
+        return getByStatus(taskType, taskStatus).size();
+    }
+
+    // Поиск задач, эпиков и подзадач, в названии или описании которых есть все слова запроса.
+    // Регистр и "ё"/"е" не различаются, слово со звездочкой в конце ищется как префикс: "провер*".
+    // Результат по возрастанию ID, просмотр в историю не записывается
+    default List<Task> searchAll(String query) {
+        return search(query, true);
+    }
+
+    // Поиск задач, эпиков и подзадач, в названии или описании которых есть хотя бы одно слово запроса
+    default List<Task> searchAny(String query) {
+        return search(query, false);
+    }
+
+    // Поиск перебором всех задач
+    private List<Task> search(String query, boolean all) {
+        List<TextIndex.Term> terms = TextIndex.parse(query);
+        List<Task> result = new ArrayList<>();
+        for (TaskType taskType : TaskType.values()) {
+            for (Task task : listOf(taskType)) {
+                if (TextIndex.matches(task, terms, all)) {
+                    result.add(task);
+                }
+            }
+        }
+        result.sort(Comparator.comparingInt(Task::getTaskId));
+        return result;
+    }
+
+    // Запрос задач по условиям: query().type(TaskType.SUBTASK).status(TaskStatus.DONE).epic(42).limit(100).list()
+    default TaskQuery query() {
+        return new TaskQuery(this);
+    }
+
+    // Выбор плана запроса. Без индексов - перебор копий таблиц запрошенных типов
+    default TaskQuery.Plan plan(TaskQuery query) {
+        List<List<? extends Task>> tables = new ArrayList<>();
+        long size = 0;
+        for (TaskType taskType : query.types()) {
+            List<? extends Task> table = listOf(taskType);
+            tables.add(table);
+            size += table.size();
+        }
+        return query.scan(tables, size, false);
+    }
+
+    // Выполнение запроса по выбранному плану
+    default List<Task> find(TaskQuery query) {
+        return plan(query).execute();
+    }
+
+    // Список всех задач заданного типа
+    private List<? extends Task> listOf(TaskType taskType) {
+        return switch (taskType) {
+            case TASK -> getTasks();
+            case EPIC -> getEpics();
+            case SUBTASK -> getSubtasks();
+        };
+    }
+
+    // Выполнение группы изменений как одного целого: все изменения применяются или откатываются вместе
+    void inTransaction(Consumer<TaskManager> changes);
+
+    // Массовое создание задач
+    default void createNewTasks(Collection<? extends Task> tasks) {
+        inTransaction(manager -> tasks.forEach(manager::createNewTask));
+    }
+
+    // Массовое создание эпиков
+    default void createNewEpics(Collection<Epic> epics) {
+        inTransaction(manager -> epics.forEach(manager::createNewEpic));
+    }
+
+    // Массовое создание подзадач одного эпика
+    default void createNewSubtasks(Epic epic, Collection<Subtask> subtasks) {
+        inTransaction(manager -> subtasks.forEach(subtask -> manager.createNewSubtask(epic, subtask)));
+    }
+
+    // Массовое обновление задач, возвращает обновленные
+    default List<Task> updateTasks(Collection<? extends Task> tasks) {
+        List<Task> updated = new ArrayList<>();
+        inTransaction(manager -> {
+            for (Task task : tasks) {
+                if (manager.updateTask(task) != null) {
+                    updated.add(task);
+                }
+            }
+        });
+        return updated;
+    }
+
+    // Массовое обновление подзадач, возвращает обновленные
+    default List<Subtask> updateSubtasks(Collection<Subtask> subtasks) {
+        List<Subtask> updated = new ArrayList<>();
+        inTransaction(manager -> {
+            for (Subtask subtask : subtasks) {
+                if (manager.updateSubtask(subtask) != null) {
+                    updated.add(subtask);
+                }
+            }
+        });
+        return updated;
+    }
+
+    // Массовое удаление задач, эпиков и подзадач по ID, возвращает удаленные
+    default List<Task> deleteByIds(int[] identifiers) {
+        List<Task> deleted = new ArrayList<>();
+        inTransaction(manager -> {
+            for (int identifier : identifiers) {
+                Task task = manager.deleteTaskById(identifier);
+                if (task == null) {
+                    task = manager.deleteEpicById(identifier);
+                }
+                if (task == null) {
+                    task = manager.deleteSubtaskById(identifier);
+                }
+                if (task != null) {
+                    deleted.add(task);
+                }
+            }
+        });
+        return deleted;
+    }
 }
@@ -0,0 +1,221 @@
+package manager;
+
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Запрос задач по условиям: тип, статус, эпик, начало названия, диапазон ID и предел числа результатов.
+// Менеджер составляет план по своим индексам: берет самый узкий источник кандидатов, а перебор таблиц -
+// только если ни один индекс не подходит. Кандидаты проверяются всеми условиями, результат - по возрастанию ID
+public class TaskQuery {
+    private final TaskManager manager;
+    private TaskType taskType;
+    private TaskStatus taskStatus;
+    private Integer epicIdentifier;
+    private String namePrefix;
+    private int fromId = Integer.MIN_VALUE;
+    private int toId = Integer.MAX_VALUE;
+    private int limit = Integer.MAX_VALUE;
+
+    TaskQuery(TaskManager manager) {
+        this.manager = manager;
+    }
+
+    public TaskQuery type(TaskType taskType) {
+        this.taskType = taskType;
+        return this;
+    }
+
+    public TaskQuery status(TaskStatus taskStatus) {
+        this.taskStatus = taskStatus;
+        return this;
+    }
+
+    // Только подзадачи заданного эпика
+    public TaskQuery epic(int epicIdentifier) {
+        this.epicIdentifier = epicIdentifier;
+        return this;
+    }
+
+    // Название начинается с заданной строки, регистр учитывается
+    public TaskQuery namePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+        return this;
+    }
+
+    // ID от fromId до toId включительно
+    public TaskQuery ids(int fromId, int toId) {
+        this.fromId = fromId;
+        this.toId = toId;
+        return this;
+    }
+
+    public TaskQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Предел числа задач не может быть отрицательным");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    // Выполнение запроса
+    public List<Task> list() {
+        return manager.find(this);
+    }
+
+    // Описание плана, который выбрал бы менеджер сейчас: источник кандидатов и оценка их числа
+    public String explain() {
+        return manager.plan(this).toString();
+    }
+
+    TaskStatus getTaskStatus() {
+        return taskStatus;
+    }
+
+    Integer getEpicIdentifier() {
+        return epicIdentifier;
+    }
+
+    String getNamePrefix() {
+        return namePrefix;
+    }
+
+    int getFromId() {
+        return fromId;
+    }
+
+    int getToId() {
+        return toId;
+    }
+
+    boolean hasIdRange() {
+        return fromId != Integer.MIN_VALUE || toId != Integer.MAX_VALUE;
+    }
+
+    // Верхняя граница числа ID в диапазоне
+    long idSpan() {
+        return Math.max(0, (long) toId - fromId + 1);
+    }
+
+    // Типы задач, среди которых идет поиск: условие на эпик оставляет только подзадачи
+    List<TaskType> types() {
+        if (taskType != null) {
+            return List.of(taskType);
+        }
+        return epicIdentifier != null ? List.of(TaskType.SUBTASK) : List.of(TaskType.values());
+    }
+
+    // Проверка кандидата всеми условиями, кроме типа: тип задает источник кандидатов
+    boolean matches(Task task) {
+        int identifier = task.getTaskId();
+        if (identifier < fromId || identifier > toId) {
+            return false;
+        }
+        if (taskStatus != null && task.getTaskStatus() != taskStatus) {
+            return false;
+        }
+        if (epicIdentifier != null
+                && !(task instanceof Subtask subtask && subtask.getEpicIdentifier() == epicIdentifier)) {
+            return false;
+        }
+        return namePrefix == null || task.getTaskName() != null && task.getTaskName().startsWith(namePrefix);
+    }
+
+    // План по источникам кандидатов. ordered - каждый источник выдает задачи по возрастанию ID
+    Plan plan(String source, long estimate, boolean ordered, List<? extends Iterable<? extends Task>> candidates) {
+        return new Plan(this, source, estimate, ordered, candidates);
+    }
+
+    // План перебора таблиц
+    Plan scan(List<? extends Iterable<? extends Task>> tables, long size, boolean ordered) {
+        return plan("перебор таблиц", size, ordered, tables);
+    }
+
+    @Override
+    public String toString() {
+        List<String> conditions = new ArrayList<>();
+        if (taskType != null) {
+            conditions.add("тип " + taskType);
+        }
+        if (taskStatus != null) {
+            conditions.add("статус " + taskStatus);
+        }
+        if (epicIdentifier != null) {
+            conditions.add("эпик " + epicIdentifier);
+        }
+        if (namePrefix != null) {
+            conditions.add("название \"" + namePrefix + "*\"");
+        }
+        if (hasIdRange()) {
+            conditions.add("ID " + fromId + ".." + toId);
+        }
+        if (limit != Integer.MAX_VALUE) {
+            conditions.add("не больше " + limit);
+        }
+        return String.join(", ", conditions);
+    }
+
+    // Выбранный план запроса
+    public static class Plan {
+        private final TaskQuery query;
+        private final String source;
+        private final long estimate;
+        private final boolean ordered;
+        private final List<? extends Iterable<? extends Task>> candidates;
+
+        private Plan(TaskQuery query, String source, long estimate, boolean ordered,
+                     List<? extends Iterable<? extends Task>> candidates) {
+            this.query = query;
+            this.source = source;
+            this.estimate = estimate;
+            this.ordered = ordered;
+            this.candidates = candidates;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public long getEstimate() {
+            return estimate;
+        }
+
+        // Более узкий из двух планов, при равной оценке - выбранный раньше. current может быть null
+        static Plan cheaper(Plan current, Plan candidate) {
+            return current == null || candidate.estimate < current.estimate ? candidate : current;
+        }
+
+        // Отбор кандидатов. Источник по возрастанию ID читается только до предела числа задач
+        List<Task> execute() {
+            List<Task> result = new ArrayList<>();
+            for (Iterable<? extends Task> source : candidates) {
+                int found = 0;
+                for (Task task : source) {
+                    if (ordered && found == query.limit) {
+                        break;
+                    }
+                    if (query.matches(task)) {
+                        result.add(task);
+                        found++;
+                    }
+                }
+            }
+            if (!ordered || candidates.size() > 1) {
+                result.sort(Comparator.comparingInt(Task::getTaskId));
+            }
+            return result.size() > query.limit ? new ArrayList<>(result.subList(0, query.limit)) : result;
+        }
+
+        @Override
+        public String toString() {
+            String conditions = query.toString();
+            String plan = source + ", оценка кандидатов: " + estimate;
+            return conditions.isEmpty() ? plan : plan + ", условия: " + conditions;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package manager;
+
+import tasks.Task;
+
+import java.text.Normalizer;
+import java.util.*;
+
+// Обратный индекс слов названий и описаний: слово -> отсортированный массив ID задач, эпиков и подзадач.
+// Слова выделяются по кодовым точкам Unicode: буквы, цифры и комбинируемые знаки после нормализации NFKC,
+// регистр не учитывается, "ё" не отличается от "е". Для каждой задачи хранятся ее слова,
+// поэтому при обновлении меняются только списки добавленных и исчезнувших слов. Не потокобезопасен
+class TextIndex {
+    private final HashMap<String, PostingList> postings = new HashMap<>();
+    private final TreeSet<String> vocabulary = new TreeSet<>(); // Слова по порядку для поиска префикса
+    private final IntObjectMap<String[]> documents = new IntObjectMap<>(); // ID -> отсортированные слова
+
+    // Индексация задачи или переиндексация после обновления. В словах задачи хранятся те же строки,
+    // что и в словаре, чтобы повторяющиеся слова не занимали память на каждую задачу
+    void add(Task task) {
+        int identifier = task.getTaskId();
+        String[] terms = termsOf(task);
+        String[] previous = documents.get(identifier);
+        if (previous == null) {
+            previous = new String[0];
+        }
+
+        // Слияние двух отсортированных наборов слов: списки общих слов не меняются
+        boolean changed = previous.length != terms.length;
+        int i = 0;
+        int j = 0;
+        while (i < previous.length || j < terms.length) {
+            int order = i == previous.length ? 1 : j == terms.length ? -1 : previous[i].compareTo(terms[j]);
+            if (order < 0) {
+                removePosting(previous[i++], identifier);
+                changed = true;
+            } else if (order > 0) {
+                terms[j] = addPosting(terms[j], identifier);
+                j++;
+                changed = true;
+            } else {
+                terms[j++] = previous[i++];
+            }
+        }
+        if (changed) {
+            documents.put(identifier, terms);
+        }
+    }
+
+    void remove(int identifier) {
+        String[] terms = documents.remove(identifier);
+        if (terms != null) {
+            for (String term : terms) {
+                removePosting(term, identifier);
+            }
+        }
+    }
+
+    // Удаление группы задач: каждый список слов фильтруется один раз, а не по разу на каждую задачу
+    void removeAll(Collection<Integer> identifiers) {
+        Map<String, List<Integer>> removals = new HashMap<>();
+        for (int identifier : identifiers) {
+            String[] terms = documents.remove(identifier);
+            if (terms != null) {
+                for (String term : terms) {
+                    removals.computeIfAbsent(term, key -> new ArrayList<>()).add(identifier);
+                }
+            }
+        }
+
+        for (Map.Entry<String, List<Integer>> entry : removals.entrySet()) {
+            PostingList list = postings.get(entry.getKey());
+            list.removeAll(entry.getValue().stream().mapToInt(Integer::intValue).sorted().toArray());
+            if (list.size == 0) {
+                postings.remove(entry.getKey());
+                vocabulary.remove(entry.getKey());
+            }
+        }
+    }
+
+    // ID задач, в которых есть все слова запроса, по возрастанию
+    int[] searchAll(List<Term> query) {
+        if (query.isEmpty()) {
+            return new int[0];
+        }
+
+        PostingList[] lists = new PostingList[query.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = idsOf(query.get(i));
+            if (lists[i].size == 0) {
+                return new int[0];
+            }
+        }
+        // Пересечение начинается с самого короткого списка: дальше результат только сокращается
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+        int[] result = lists[0].ids;
+        int size = lists[0].size;
+        for (int i = 1; i < lists.length && size > 0; i++) {
+            result = intersect(result, size, lists[i]);
+            size = result.length;
+        }
+        return lists.length == 1 ? Arrays.copyOf(result, size) : result;
+    }
+
+    // ID задач, в которых есть хотя бы одно слово запроса, по возрастанию
+    int[] searchAny(List<Term> query) {
+        List<PostingList> lists = new ArrayList<>(query.size());
+        for (Term term : query) {
+            lists.add(idsOf(term));
+        }
+        return union(lists);
+    }
+
+    // Оценка числа ID для searchAll без пересечения: длина самого короткого списка слова запроса.
+    // Списки слов с префиксом суммируются, пока сумма меньше уже найденного минимума
+    int estimate(List<Term> query) {
+        int estimate = Integer.MAX_VALUE;
+        for (Term term : query) {
+            if (!term.prefix) {
+                PostingList list = postings.get(term.text);
+                estimate = Math.min(estimate, list != null ? list.size : 0);
+                continue;
+            }
+            int sum = 0;
+            for (String word : vocabulary.tailSet(term.text, true)) {
+                if (!word.startsWith(term.text) || sum >= estimate) {
+                    break;
+                }
+                sum += postings.get(word).size;
+            }
+            estimate = Math.min(estimate, sum);
+        }
+        return query.isEmpty() ? 0 : estimate;
+    }
+
+    // Добавление ID в список слова, возвращает строку слова из словаря
+    private String addPosting(String term, int identifier) {
+        PostingList list = postings.get(term);
+        if (list == null) {
+            list = new PostingList(term);
+            postings.put(term, list);
+            vocabulary.add(term);
+        }
+        list.add(identifier);
+        return list.term;
+    }
+
+    private void removePosting(String term, int identifier) {
+        PostingList list = postings.get(term);
+        list.remove(identifier);
+        if (list.size == 0) {
+            postings.remove(term);
+            vocabulary.remove(term);
+        }
+    }
+
+    // Список слова или объединение списков всех слов с префиксом. Список слова не копируется
+    private PostingList idsOf(Term term) {
+        if (!term.prefix) {
+            PostingList list = postings.get(term.text);
+            return list != null ? list : new PostingList(term.text);
+        }
+
+        List<PostingList> lists = new ArrayList<>();
+        for (String word : vocabulary.tailSet(term.text, true)) {
+            if (!word.startsWith(term.text)) {
+                break;
+            }
+            lists.add(postings.get(word));
+        }
+        return lists.size() == 1 ? lists.getFirst() : new PostingList(term.text, union(lists));
+    }
+
+    // Пересечение отсортированных списков: первые shorterSize элементов shorter и список longer.
+    // Если списки сильно отличаются по длине, элементы короткого ищутся в длинном двоичным поиском
+    // от последней найденной позиции, иначе списки сливаются одним проходом
+    private static int[] intersect(int[] shorter, int shorterSize, PostingList longer) {
+        int[] result = new int[shorterSize];
+        int count = 0;
+        int[] ids = longer.ids;
+        if (longer.size / 16 > shorterSize) {
+            int j = 0;
+            for (int i = 0; i < shorterSize && j < longer.size; i++) {
+                int found = Arrays.binarySearch(ids, j, longer.size, shorter[i]);
+                if (found >= 0) {
+                    result[count++] = shorter[i];
+                    j = found + 1;
+                } else {
+                    j = -found - 1;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < shorterSize && j < longer.size) {
+                int left = shorter[i];
+                int right = ids[j];
+                if (left == right) {
+                    result[count++] = left;
+                }
+                i += left <= right ? 1 : 0;
+                j += left >= right ? 1 : 0;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Объединение отсортированных списков без повторов
+    private static int[] union(List<PostingList> lists) {
+        int total = 0;
+        for (PostingList list : lists) {
+            total += list.size;
+        }
+        int[] result = new int[total];
+        int offset = 0;
+        for (PostingList list : lists) {
+            System.arraycopy(list.ids, 0, result, offset, list.size);
+            offset += list.size;
+        }
+        if (lists.size() == 1) {
+            return result;
+        }
+        Arrays.sort(result);
+
+        int count = 0;
+        for (int i = 0; i < total; i++) {
+            if (count == 0 || result[count - 1] != result[i]) {
+                result[count++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Поиск перебором без индекса: подходит ли задача под запрос
+    static boolean matches(Task task, List<Term> query, boolean all) {
+        if (query.isEmpty()) {
+            return false;
+        }
+
+        String[] terms = termsOf(task);
+        for (Term term : query) {
+            if (term.matchesAny(terms) != all) {
+                return !all;
+            }
+        }
+        return all;
+    }
+
+    // Отсортированные слова названия и описания без повторов
+    private static String[] termsOf(Task task) {
+        List<Term> name = parse(task.getTaskName());
+        List<Term> description = parse(task.getTaskDescription());
+        String[] terms = new String[name.size() + description.size()];
+        int count = 0;
+        for (Term term : name) {
+            terms[count++] = term.text;
+        }
+        for (Term term : description) {
+            terms[count++] = term.text;
+        }
+        Arrays.sort(terms);
+
+        count = 0;
+        for (int i = 0; i < terms.length; i++) {
+            if (count == 0 || !terms[count - 1].equals(terms[i])) {
+                terms[count++] = terms[i];
+            }
+        }
+        return count == terms.length ? terms : Arrays.copyOf(terms, count);
+    }
+
+    // Разбор текста на слова. Слово, за которым сразу идет "*", - префикс
+    static List<Term> parse(String text) {
+        List<Term> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+
+        String normalized = isNormalized(text) ? text : Normalizer.normalize(text, Normalizer.Form.NFKC);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isWordPart(codePoint)) {
+                word.appendCodePoint(fold(codePoint));
+            } else if (!word.isEmpty()) {
+                terms.add(new Term(word.toString(), codePoint == '*'));
+                word.setLength(0);
+            }
+        }
+        if (!word.isEmpty()) {
+            terms.add(new Term(word.toString(), false));
+        }
+        return terms;
+    }
+
+    // Слова, которые обязательно есть в названии, начинающемся с prefix. Слово в конце prefix может быть
+    // неполным: оно ищется как префикс без последнего символа, который в названии может слиться
+    // при нормализации со следующим комбинируемым знаком
+    static List<Term> prefixTerms(String prefix) {
+        List<Term> terms = parse(prefix);
+        if (terms.isEmpty() || prefix.isEmpty() || !isWordPart(prefix.codePointBefore(prefix.length()))) {
+            return terms;
+        }
+
+        String last = terms.removeLast().text;
+        int end = last.offsetByCodePoints(last.length(), -1);
+        if (end > 0) {
+            terms.add(new Term(last.substring(0, end), true));
+        }
+        return terms;
+    }
+
+    // Текст только из ASCII и основных букв кириллицы нормализацией NFKC не меняется
+    private static boolean isNormalized(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80 && (c < 'Ё' || c > 'ё')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordPart(int codePoint) {
+        if (Character.isLetterOrDigit(codePoint)) {
+            return true;
+        }
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    private static int fold(int codePoint) {
+        int lowerCase = Character.toLowerCase(codePoint);
+        return lowerCase == 'ё' ? 'е' : lowerCase;
+    }
+
+    // Слово запроса
+    static final class Term {
+        private final String text;
+        private final boolean prefix;
+
+        private Term(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public String toString() {
+            return prefix ? text + "*" : text;
+        }
+
+        private boolean matchesAny(String[] terms) {
+            for (String term : terms) {
+                if (prefix ? term.startsWith(text) : term.equals(text)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Отсортированный список ID. Новые ID больше прежних, поэтому обычно добавляются в конец
+    private static final class PostingList {
+        private final String term;
+        private int[] ids;
+        private int size;
+
+        private PostingList(String term) {
+            this.term = term;
+            this.ids = new int[2];
+        }
+
+        private PostingList(String term, int[] ids) {
+            this.term = term;
+            this.ids = ids;
+            this.size = ids.length;
+        }
+
+        private void add(int identifier) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            if (size == 0 || ids[size - 1] < identifier) {
+                ids[size++] = identifier;
+                return;
+            }
+
+            int found = Arrays.binarySearch(ids, 0, size, identifier);
+            if (found >= 0) {
+                return;
+            }
+            int position = -found - 1;
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = identifier;
+            size++;
+        }
+
+        private void remove(int identifier) {
+            int found = Arrays.binarySearch(ids, 0, size, identifier);
+            if (found >= 0) {
+                System.arraycopy(ids, found + 1, ids, found, size - found - 1);
+                size--;
+                shrink();
+            }
+        }
+
+        // Удаление отсортированных ID одним проходом
+        private void removeAll(int[] removed) {
+            int count = 0;
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                while (j < removed.length && removed[j] < ids[i]) {
+                    j++;
+                }
+                if (j == removed.length || removed[j] != ids[i]) {
+                    ids[count++] = ids[i];
+                }
+            }
+            size = count;
+            shrink();
+        }
+
+        private void shrink() {
+            if (ids.length > 16 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, ids.length / 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package manager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+// Журнал отмены транзакции: значения таблиц до первого изменения, подзадачи и статусы затронутых эпиков,
+// эпики для пересчета статуса, отложенные удаления из истории и события. Не потокобезопасен
+class TransactionLog {
+    private final int generatorId; // Первый ID, выданный в транзакции
+    private final Map<Integer, Task> taskOriginals = new HashMap<>();
+    private final Map<Integer, Epic> epicOriginals = new HashMap<>();
+    private final Map<Integer, Subtask> subtaskOriginals = new HashMap<>();
+    private final Set<Epic> touchedEpics = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<EpicState> epicStates = new ArrayList<>();
+    private final Set<Epic> staleEpics = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<Integer> historyRemovals = new ArrayList<>();
+    private final List<TaskEvent> events = new ArrayList<>(); // События для публикации при фиксации
+
+    TransactionLog(int generatorId) {
+        this.generatorId = generatorId;
+    }
+
+    int getGeneratorId() {
+        return generatorId;
+    }
+
+    // Запоминание значения до первого изменения, null - ID отсутствовал.
+    // Задачи с ID, выданными в транзакции, не запоминаются: при откате они просто удаляются
+    void remember(TaskType taskType, int identifier, Task original) {
+        if (identifier >= generatorId) {
+            return;
+        }
+
+        Map<Integer, ? super Task> originals = switch (taskType) {
+            case TASK -> taskOriginals;
+            case EPIC -> asTaskMap(epicOriginals);
+            case SUBTASK -> asTaskMap(subtaskOriginals);
+        };
+        if (!originals.containsKey(identifier)) {
+            originals.put(identifier, original);
+        }
+    }
+
+    // Запоминание подзадач и статуса эпика перед первым изменением
+    void touch(Epic epic) {
+        if (touchedEpics.add(epic)) {
+            epicStates.add(new EpicState(epic));
+        }
+    }
+
+    // Статус эпика пересчитывается один раз при фиксации
+    void markStale(Epic epic) {
+        touch(epic);
+        staleEpics.add(epic);
+    }
+
+    Set<Epic> getStaleEpics() {
+        return staleEpics;
+    }
+
+    void removeFromHistory(int identifier) {
+        historyRemovals.add(identifier);
+    }
+
+    List<Integer> getHistoryRemovals() {
+        return historyRemovals;
+    }
+
+    void defer(TaskEvent event) {
+        events.add(event);
+    }
+
+    List<TaskEvent> getEvents() {
+        return events;
+    }
+
+    Set<Epic> getTouchedEpics() {
+        return touchedEpics;
+    }
+
+    // Обход ID, значения которых восстанавливает откат: выданных в транзакции и запомненных
+    void forEachRestored(int generatorEnd, IntConsumer action) {
+        for (int identifier = generatorId; identifier < generatorEnd; identifier++) {
+            action.accept(identifier);
+        }
+        taskOriginals.keySet().forEach(action::accept);
+        epicOriginals.keySet().forEach(action::accept);
+        subtaskOriginals.keySet().forEach(action::accept);
+    }
+
+    // Восстановление таблиц, подзадач и статусов эпиков. generatorEnd - следующий ID на момент отката
+    void rollback(Map<Integer, Task> tasks, Map<Integer, Epic> epics, Map<Integer, Subtask> subtasks,
+                  int generatorEnd) {
+        for (int identifier = generatorId; identifier < generatorEnd; identifier++) {
+            tasks.remove(identifier);
+            epics.remove(identifier);
+            subtasks.remove(identifier);
+        }
+        restore(tasks, taskOriginals);
+        restore(epics, epicOriginals);
+        restore(subtasks, subtaskOriginals);
+
+        // В обратном порядке: эпики после updateEpic разделяют один список подзадач
+        for (int i = epicStates.size() - 1; i >= 0; i--) {
+            epicStates.get(i).restore();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Integer, ? super Task> asTaskMap(Map<Integer, ? extends Task> map) {
+        return (Map<Integer, ? super Task>) map;
+    }
+
+    private static <T extends Task> void restore(Map<Integer, T> map, Map<Integer, T> originals) {
+        for (Map.Entry<Integer, T> entry : originals.entrySet()) {
+            if (entry.getValue() == null) {
+                map.remove(entry.getKey());
+            } else {
+                map.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    // Состояние эпика до транзакции
+    private static class EpicState {
+        private final Epic epic;
+        private final List<Subtask> subtasks; // Список эпика, может быть общим с другим объектом эпика
+        private final List<Subtask> contents;
+        private final TaskStatus status;
+
+        private EpicState(Epic epic) {
+            this.epic = epic;
+            this.subtasks = epic.getSubtasks();
+            this.contents = new ArrayList<>(subtasks);
+            this.status = epic.getTaskStatus();
+        }
+
+        private void restore() {
+            subtasks.clear();
+            subtasks.addAll(contents);
+            epic.setSubtasks(subtasks);
+            epic.setTaskStatus(status);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package manager;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Ограниченная очередь отложенной записи журнала с отдельным потоком записи.
+// Повторные изменения одной задачи, ещё не записанные на диск, объединяются в одну запись
+class WriteBehindQueue implements AutoCloseable {
+    private final int capacity;
+    private final Sink sink;
+    private final Thread writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition written = lock.newCondition();
+
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    private final Map<Integer, Entry> pendingById = new HashMap<>(); // Записи после последней границы
+    private long enqueuedCount; // Число поставленных в очередь записей
+    private long writtenCount;  // Число обработанных потоком записи записей
+    private boolean isClosed;
+    private IOException failure;
+
+    WriteBehindQueue(int capacity, String name, Sink sink) {
+        this.capacity = capacity;
+        this.sink = sink;
+        this.writer = new Thread(this::run, "write-behind-" + name);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Постановка записей журнала в очередь. Блокирует вызывающий поток, пока очередь заполнена
+    void offer(List<String> records) throws IOException {
+        lock.lock();
+        try {
+            for (String record : records) {
+                checkState();
+                int key = TaskJournal.recordKey(record);
+
+                Entry entry = key >= 0 ? pendingById.get(key) : null;
+                if (entry != null) {
+                    entry.record = record; // Более новое состояние той же задачи заменяет ещё не записанное
+                    continue;
+                }
+
+                while (pending.size() >= capacity) {
+                    notFull.awaitUninterruptibly();
+                    checkState();
+                }
+
+                entry = new Entry(record, null);
+                pending.addLast(entry);
+                enqueuedCount++;
+                if (key >= 0) {
+                    pendingById.put(key, entry);
+                } else {
+                    pendingById.clear(); // Очистка по типу: более поздние записи не переносятся раньше неё
+                }
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Действие, которое поток записи выполнит строго после всех ранее поставленных записей
+    void offer(Action action) throws IOException {
+        lock.lock();
+        try {
+            checkState();
+            pending.addLast(new Entry(null, action));
+            enqueuedCount++;
+            pendingById.clear();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ожидание записи всего, что было поставлено в очередь до вызова
+    void flush() throws IOException {
+        lock.lock();
+        try {
+            long target = enqueuedCount;
+            while (writtenCount < target && failure == null) {
+                written.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            isClosed = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void checkState() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (isClosed) {
+            throw new IllegalStateException("Очередь отложенной записи закрыта");
+        }
+    }
+
+    // Цикл потока записи: забирает из очереди всё накопившееся и записывает одной пачкой
+    private void run() {
+        List<Entry> batch = new ArrayList<>();
+        while (true) {
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !isClosed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch.addAll(pending);
+                pending.clear();
+                pendingById.clear();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                write(batch);
+            } catch (IOException | RuntimeException e) {
+                lock.lock();
+                try {
+                    failure = e instanceof IOException ioException ? ioException : new IOException(e);
+                    notFull.signalAll();
+                    written.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                writtenCount += batch.size();
+                written.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            batch.clear();
+        }
+    }
+
+    // Подряд идущие записи передаются одной пачкой, действия выполняются между ними по порядку
+    private void write(List<Entry> batch) throws IOException {
+        List<String> records = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            if (entry.action == null) {
+                records.add(entry.record);
+                continue;
+            }
+            if (!records.isEmpty()) {
+                sink.write(records);
+                records = new ArrayList<>();
+            }
+            entry.action.run();
+        }
+        if (!records.isEmpty()) {
+            sink.write(records);
+        }
+    }
+
+    private static class Entry {
+        private String record;
+        private final Action action;
+
+        private Entry(String record, Action action) {
+            this.record = record;
+            this.action = action;
+        }
+    }
+
+    // Получатель пачек записей в потоке записи
+    interface Sink {
+        void write(List<String> records) throws IOException;
+    }
+
+    interface Action {
+        void run() throws IOException;
+    }
+}
@@ -1,23 +1,38 @@
 package tasks;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 public class Epic extends Task {
-    private List<Subtask> subtasks; // Список подзадач эпика
+    // Подзадачи эпика: порядок добавления, индекс по ID и число подзадач в каждом статусе,
+    // поэтому изменения подзадач и вывод статуса эпика выполняются за O(1)
+    private SubtaskList subtasks;
 
     public Epic(String taskName, String taskDescription) {
         super(taskName, taskDescription, TaskStatus.NEW);
-        this.subtasks = new ArrayList<>();
+        this.subtasks = new SubtaskList();
     }
 
     public Epic(int taskIdentifier, String taskName, String taskDescription) {
         super(taskIdentifier, taskName, taskDescription, TaskStatus.NEW);
-        this.subtasks = new ArrayList<>();
+        this.subtasks = new SubtaskList();
     }
 
+    // Установка списка подзадач. Список другого типа копируется в SubtaskList
     public void setSubtasks(List<Subtask> subtasks) {
-        this.subtasks = subtasks != null ? subtasks : new ArrayList<>();
+        if (subtasks instanceof SubtaskList subtaskList) {
+            this.subtasks = subtaskList;
+        } else {
+            this.subtasks = subtasks != null ? new SubtaskList(subtasks) : new SubtaskList();
+        }
+    }
+
+    // Перенос подзадач из прежней версии эпика. Список остается общим
+    public void adoptSubtasks(Epic previous) {
+        this.subtasks = previous.subtasks;
     }
 
     // Получение списка подзадач эпика
@@ -32,15 +47,73 @@ public class Epic extends Task {
         }
     }
 
+    // Замена подзадачи с тем же ID, возвращает прежнюю или null, если такой подзадачи нет.
+    // Подзадача, статус которой изменен на месте, передается сама и учитывается в новом статусе
+    public Subtask replaceSubtask(Subtask subtask) {
+        return subtasks.replace(subtask);
+    }
+
+    // Замена подзадач по функции, которая возвращает новую подзадачу или ту же самую
+    public void replaceSubtasks(UnaryOperator<Subtask> replacer) {
+        subtasks.replaceAll(replacer);
+    }
+
+    // Удаление подзадачи с тем же ID, возвращает удаленную или null
+    public Subtask removeSubtask(Subtask subtask) {
+        return subtasks.removeById(subtask.getTaskId());
+    }
+
+    // Удаление подзадач, подходящих под условие
+    public void removeSubtasks(Predicate<Subtask> filter) {
+        subtasks.removeIf(filter);
+    }
+
+    // Удаление всех подзадач эпика
+    public void clearSubtasks() {
+        subtasks.clear();
+    }
+
+    // Число подзадач эпика в заданном статусе
+    public int countSubtasks(TaskStatus status) {
+        return subtasks.count(status);
+    }
+
+    // Обновление статуса эпика по счетчикам: есть подзадача в работе - IN_PROGRESS,
+    // все подзадачи выполнены (в том числе когда их нет) - DONE, все новые - NEW, иначе IN_PROGRESS
+    public void refreshStatus() {
+        int total = subtasks.size();
+        if (subtasks.count(TaskStatus.IN_PROGRESS) > 0) {
+            setTaskStatus(TaskStatus.IN_PROGRESS);
+        } else if (subtasks.count(TaskStatus.DONE) == total) {
+            setTaskStatus(TaskStatus.DONE);
+        } else if (subtasks.count(TaskStatus.NEW) == total) {
+            setTaskStatus(TaskStatus.NEW);
+        } else {
+            setTaskStatus(TaskStatus.IN_PROGRESS);
+        }
+    }
+
+    // Полный пересчет счетчиков по списку подзадач: проверка и восстановление после изменения статусов
+    // или ID подзадач в обход эпика. Возвращает true, если счетчики были неверны
+    public boolean recountSubtaskStatuses() {
+        return subtasks.recount();
+    }
+
     // Получение списка идентификаторов подзадач для эпика
     public List<Integer> getSubtasksIds() {
-        List<Integer> result = new ArrayList<>();
-        for (Subtask subtask : subtasks) {
-            result.add(subtask.getTaskId());
+        int[] identifiers = subtasks.ids();
+        List<Integer> result = new ArrayList<>(identifiers.length);
+        for (int identifier : identifiers) {
+            result.add(identifier);
         }
         return result;
     }
 
+    // Идентификаторы подзадач без упаковки в порядке добавления
+    public int[] getSubtaskIdArray() {
+        return subtasks.ids();
+    }
+
     @Override
     public String toString() {
         return "Epic{" +
@@ -48,7 +121,7 @@ public class Epic extends Task {
                 ", taskName = '" + super.getTaskName() + '\'' +
                 ", taskDescription = '" + super.getTaskDescription() + '\'' +
                 ", taskStatus = " + super.getTaskStatus() +
-                ", subtasksIds = " + getSubtasksIds() +
+                ", subtasksIds = " + Arrays.toString(subtasks.ids()) +
                 '}';
     }
 }
@@ -0,0 +1,497 @@
+package tasks;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+// Список подзадач эпика в порядке добавления с индексом по ID. Добавление в конец, поиск, замена и удаление
+// по ID выполняются за O(1): удаленная подзадача оставляет пустую ячейку, ячейки уплотняются, когда пустых
+// становится больше, чем занятых, или когда нужен доступ по номеру в списке.
+// Список также ведет число подзадач в каждом статусе и помнит, в каком статусе учтена каждая ячейка, поэтому
+// подзадача, статус которой изменили на месте, переучитывается при замене ее же самой. Подзадачи с ID <= 0
+// и повторы ID не индексируются и ищутся перебором. ID подзадачи нельзя менять, пока она в списке,
+// без пересчета recount()
+public final class SubtaskList extends AbstractList<Subtask> {
+    private Subtask[] items = new Subtask[4]; // Подзадачи по порядку добавления, null - удаленная
+    private TaskStatus[] counted = new TaskStatus[4]; // Статус, в котором учтена подзадача ячейки
+    private int end;  // Число использованных ячеек items, включая пустые
+    private int size;
+
+    // Индекс ID -> ячейка items: открытая адресация, ключ 0 - пустая ячейка индекса
+    private int[] indexKeys = new int[8];
+    private int[] indexSlots = new int[8];
+    private int indexSize;
+    private int unindexed; // Число подзадач, которых нет в индексе
+
+    private int newCount;
+    private int inProgressCount;
+    private int doneCount;
+
+    public SubtaskList() {
+    }
+
+    public SubtaskList(Collection<? extends Subtask> subtasks) {
+        addAll(subtasks);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Subtask get(int index) {
+        Objects.checkIndex(index, size);
+        compact();
+        return items[index];
+    }
+
+    @Override
+    public boolean add(Subtask subtask) {
+        Objects.requireNonNull(subtask, "Подзадача не может быть null");
+        if (end == items.length) {
+            if (end - size > 0) {
+                compact();
+            } else {
+                items = Arrays.copyOf(items, items.length * 2);
+                counted = Arrays.copyOf(counted, counted.length * 2);
+            }
+        }
+
+        items[end] = subtask;
+        attach(subtask, end);
+        end++;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    // Вставка в середину сдвигает следующие подзадачи и выполняется за O(n)
+    @Override
+    public void add(int index, Subtask subtask) {
+        Objects.checkIndex(index, size + 1);
+        add(subtask);
+        if (index == size - 1) {
+            return;
+        }
+
+        compact();
+        TaskStatus status = counted[size - 1];
+        System.arraycopy(items, index, items, index + 1, size - 1 - index);
+        System.arraycopy(counted, index, counted, index + 1, size - 1 - index);
+        items[index] = subtask;
+        counted[index] = status;
+        reindex();
+    }
+
+    @Override
+    public Subtask set(int index, Subtask subtask) {
+        Objects.requireNonNull(subtask, "Подзадача не может быть null");
+        Objects.checkIndex(index, size);
+        compact();
+        return replaceAt(index, subtask);
+    }
+
+    @Override
+    public Subtask remove(int index) {
+        Objects.checkIndex(index, size);
+        compact();
+        Subtask removed = items[index];
+        removeAt(index);
+        return removed;
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        int slot = slotOf(object);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return slotOf(object) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object object) {
+        compact();
+        return slotOf(object);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Subtask> filter) {
+        boolean isRemoved = false;
+        for (int i = 0; i < end; i++) {
+            Subtask subtask = items[i];
+            if (subtask != null && filter.test(subtask)) {
+                items[i] = null;
+                detach(subtask, i);
+                isRemoved = true;
+            }
+        }
+        if (end - size > size + 8) {
+            compact();
+        }
+        return isRemoved;
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<Subtask> operator) {
+        for (int i = 0; i < end; i++) {
+            if (items[i] != null) {
+                Subtask subtask = Objects.requireNonNull(operator.apply(items[i]), "Подзадача не может быть null");
+                if (subtask != items[i] || subtask.getTaskStatus() != counted[i]) {
+                    replaceAt(i, subtask);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        items = new Subtask[4];
+        counted = new TaskStatus[4];
+        end = 0;
+        size = 0;
+        indexKeys = new int[8];
+        indexSlots = new int[8];
+        indexSize = 0;
+        unindexed = 0;
+        newCount = 0;
+        inProgressCount = 0;
+        doneCount = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Subtask> iterator() {
+        return new Iterator<>() {
+            private int next = skipEmpty(0);
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public Subtask next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = skipEmpty(next + 1);
+                return items[last];
+            }
+
+            // Удаление оставляет пустую ячейку и не сдвигает следующие подзадачи
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                Subtask removed = items[last];
+                items[last] = null;
+                detach(removed, last);
+                last = -1;
+                expectedModCount = modCount;
+            }
+        };
+    }
+
+    /*
+     *  Операции по ID
+     */
+
+    // Подзадача с заданным ID или null
+    public Subtask findById(int identifier) {
+        int slot = slotOf(identifier);
+        return slot < 0 ? null : items[slot];
+    }
+
+    // Замена подзадачи с тем же ID, возвращает прежнюю или null, если такой подзадачи нет.
+    // Замена подзадачи ею же самой переучитывает ее текущий статус
+    public Subtask replace(Subtask subtask) {
+        int slot = slotOf(subtask.getTaskId());
+        return slot < 0 ? null : replaceAt(slot, subtask);
+    }
+
+    // Удаление подзадачи по ID, возвращает удаленную или null
+    public Subtask removeById(int identifier) {
+        int slot = slotOf(identifier);
+        if (slot < 0) {
+            return null;
+        }
+
+        Subtask removed = items[slot];
+        removeAt(slot);
+        return removed;
+    }
+
+    // ID подзадач в порядке добавления
+    public int[] ids() {
+        int[] identifiers = new int[size];
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (items[i] != null) {
+                identifiers[count++] = items[i].getTaskId();
+            }
+        }
+        return identifiers;
+    }
+
+    /*
+     *  Счетчики статусов
+     */
+
+    // Число подзадач в заданном статусе
+    public int count(TaskStatus status) {
+        return switch (status) {
+            case NEW -> newCount;
+            case IN_PROGRESS -> inProgressCount;
+            case DONE -> doneCount;
+        };
+    }
+
+    // Пересчет счетчиков и индекса полным проходом, возвращает true, если счетчики были неверны
+    public boolean recount() {
+        int oldNew = newCount;
+        int oldInProgress = inProgressCount;
+        int oldDone = doneCount;
+
+        newCount = 0;
+        inProgressCount = 0;
+        doneCount = 0;
+        for (int i = 0; i < end; i++) {
+            if (items[i] != null) {
+                counted[i] = items[i].getTaskStatus();
+                count(counted[i], 1);
+            }
+        }
+        reindex();
+        return oldNew != newCount || oldInProgress != inProgressCount || oldDone != doneCount;
+    }
+
+    /*
+     *  Ячейки
+     */
+
+    // Ячейка подзадачи с ID или -1
+    private int slotOf(int identifier) {
+        if (identifier > 0) {
+            int slot = indexGet(identifier);
+            if (slot >= 0 || unindexed == 0) {
+                return slot;
+            }
+        }
+
+        for (int i = 0; i < end; i++) {
+            if (items[i] != null && items[i].getTaskId() == identifier) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Задачи равны по классу и ID, поэтому поиск объекта сводится к поиску по ID
+    private int slotOf(Object object) {
+        if (!(object instanceof Subtask subtask)) {
+            return -1;
+        }
+        int slot = slotOf(subtask.getTaskId());
+        return slot >= 0 && items[slot].equals(subtask) ? slot : -1;
+    }
+
+    private Subtask replaceAt(int slot, Subtask subtask) {
+        Subtask previous = items[slot];
+        count(counted[slot], -1);
+        counted[slot] = subtask.getTaskStatus();
+        count(counted[slot], 1);
+        items[slot] = subtask;
+
+        if (previous.getTaskId() != subtask.getTaskId()) {
+            unattach(previous, slot);
+            attachIndex(subtask, slot);
+        }
+        return previous;
+    }
+
+    private void removeAt(int slot) {
+        Subtask removed = items[slot];
+        items[slot] = null;
+        detach(removed, slot);
+        if (end - size > size + 8) {
+            compact();
+        }
+    }
+
+    private void attach(Subtask subtask, int slot) {
+        counted[slot] = subtask.getTaskStatus();
+        count(counted[slot], 1);
+        attachIndex(subtask, slot);
+    }
+
+    private void attachIndex(Subtask subtask, int slot) {
+        int identifier = subtask.getTaskId();
+        if (identifier > 0 && indexGet(identifier) < 0) {
+            indexPut(identifier, slot);
+        } else {
+            unindexed++;
+        }
+    }
+
+    // Учет подзадачи, уже убранной из ячейки slot
+    private void detach(Subtask subtask, int slot) {
+        count(counted[slot], -1);
+        counted[slot] = null;
+        unattach(subtask, slot);
+        size--;
+        modCount++;
+        while (end > 0 && items[end - 1] == null) {
+            end--;
+        }
+    }
+
+    private void unattach(Subtask subtask, int slot) {
+        int identifier = subtask.getTaskId();
+        if (identifier > 0 && indexGet(identifier) == slot) {
+            indexRemove(identifier);
+        } else {
+            unindexed--;
+        }
+    }
+
+    // Уплотнение: подзадачи сдвигаются к началу без пустых ячеек, индекс получает новые ячейки
+    private void compact() {
+        if (end == size) {
+            return;
+        }
+
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            Subtask subtask = items[i];
+            if (subtask == null) {
+                continue;
+            }
+            if (count != i) {
+                items[count] = subtask;
+                items[i] = null;
+                counted[count] = counted[i];
+                counted[i] = null;
+                int identifier = subtask.getTaskId();
+                if (identifier > 0 && indexGet(identifier) == i) {
+                    indexPut(identifier, count);
+                }
+            }
+            count++;
+        }
+        end = count;
+    }
+
+    // Перестроение индекса после сдвига ячеек или изменения ID подзадач
+    private void reindex() {
+        indexKeys = new int[indexKeys.length];
+        indexSlots = new int[indexSlots.length];
+        indexSize = 0;
+        unindexed = 0;
+        for (int i = 0; i < end; i++) {
+            if (items[i] != null) {
+                attachIndex(items[i], i);
+            }
+        }
+    }
+
+    private int skipEmpty(int slot) {
+        while (slot < end && items[slot] == null) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private void count(TaskStatus status, int delta) {
+        if (status == null) {
+            return; // Подзадача без статуса учитывается только в размере списка
+        }
+
+        switch (status) {
+            case NEW -> newCount += delta;
+            case IN_PROGRESS -> inProgressCount += delta;
+            case DONE -> doneCount += delta;
+        }
+    }
+
+    /*
+     *  Индекс ID -> ячейка
+     */
+
+    private int indexSlot(int identifier) {
+        int hash = identifier * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (indexKeys.length - 1);
+    }
+
+    private int indexGet(int identifier) {
+        int mask = indexKeys.length - 1;
+        for (int i = indexSlot(identifier); indexKeys[i] != 0; i = (i + 1) & mask) {
+            if (indexKeys[i] == identifier) {
+                return indexSlots[i];
+            }
+        }
+        return -1;
+    }
+
+    private void indexPut(int identifier, int slot) {
+        int mask = indexKeys.length - 1;
+        int i = indexSlot(identifier);
+        for (; indexKeys[i] != 0; i = (i + 1) & mask) {
+            if (indexKeys[i] == identifier) {
+                indexSlots[i] = slot;
+                return;
+            }
+        }
+
+        indexKeys[i] = identifier;
+        indexSlots[i] = slot;
+        if (++indexSize * 4 > indexKeys.length * 3) {
+            int[] oldKeys = indexKeys;
+            int[] oldSlots = indexSlots;
+            indexKeys = new int[oldKeys.length * 2];
+            indexSlots = new int[oldKeys.length * 2];
+            indexSize = 0;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != 0) {
+                    indexPut(oldKeys[j], oldSlots[j]);
+                }
+            }
+        }
+    }
+
+    // Удаление со сдвигом следующих ключей цепочки
+    private void indexRemove(int identifier) {
+        int mask = indexKeys.length - 1;
+        int gap = indexSlot(identifier);
+        while (indexKeys[gap] != identifier) {
+            gap = (gap + 1) & mask;
+        }
+
+        for (int i = (gap + 1) & mask; indexKeys[i] != 0; i = (i + 1) & mask) {
+            if (((i - indexSlot(indexKeys[i])) & mask) >= ((i - gap) & mask)) {
+                indexKeys[gap] = indexKeys[i];
+                indexSlots[gap] = indexSlots[i];
+                gap = i;
+            }
+        }
+        indexKeys[gap] = 0;
+        indexSize--;
+    }
+}
@@ -0,0 +1,84 @@
+package manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryFormatterTest {
+
+    private Task task;
+    private Epic epic;
+    private Subtask subtask;
+
+    @BeforeEach
+    void beforeEach() {
+        task = new Task(1, "Задача, с запятой", "Описание\nв две строки", TaskStatus.IN_PROGRESS);
+        epic = new Epic(300, "Эпик", "Проверка");
+        epic.setTaskStatus(TaskStatus.DONE);
+        subtask = new Subtask(Integer.MAX_VALUE, "Подзадача", null, TaskStatus.DONE);
+        subtask.setEpicIdentifier(epic.getTaskId());
+    }
+
+    @Test // Проверка записи и чтения задачи, эпика и подзадачи
+    void shouldRoundTripAllTaskTypes() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryFormatter.writeHeader(output, 3);
+        BinaryFormatter.write(output, task);
+        BinaryFormatter.write(output, epic);
+        BinaryFormatter.write(output, subtask);
+
+        ByteBuffer buffer = ByteBuffer.wrap(output.toByteArray());
+        assertTrue(BinaryFormatter.isBinary(buffer), "Сигнатура формата не распознана");
+        assertEquals(3, BinaryFormatter.readHeader(buffer), "Неверное число записей");
+
+        Task readTask = BinaryFormatter.read(buffer);
+        Epic readEpic = BinaryFormatter.read(buffer);
+        Subtask readSubtask = BinaryFormatter.read(buffer);
+
+        assertAll(
+                () -> assertEquals(task, readTask, "Задача не совпадает"),
+                () -> assertEquals("Задача, с запятой", readTask.getTaskName(), "Неверное название задачи"),
+                () -> assertEquals("Описание\nв две строки", readTask.getTaskDescription(), "Неверное описание"),
+                () -> assertEquals(TaskStatus.IN_PROGRESS, readTask.getTaskStatus(), "Неверный статус задачи"),
+                () -> assertEquals(epic, readEpic, "Эпик не совпадает"),
+                () -> assertEquals(TaskStatus.DONE, readEpic.getTaskStatus(), "Неверный статус эпика"),
+                () -> assertEquals(subtask, readSubtask, "Подзадача не совпадает"),
+                () -> assertNull(readSubtask.getTaskDescription(), "null должен сохраняться"),
+                () -> assertEquals(300, readSubtask.getEpicIdentifier(), "Неверный ID эпика"),
+                () -> assertFalse(buffer.hasRemaining(), "Прочитаны не все данные")
+        );
+    }
+
+    @Test // Небольшие ID должны занимать один байт
+    void shouldWriteSmallIdsInOneByte() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryFormatter.write(output, new Task(5, "", "", TaskStatus.NEW));
+
+        // Тег, ID и две пустые строки
+        assertEquals(4, output.size(), "Неверный размер записи");
+    }
+
+    @Test // CSV не должен распознаваться как двоичный формат
+    void shouldNotDetectCsvAsBinary() {
+        ByteBuffer buffer = ByteBuffer.wrap(CSVFormatter.getHeader().getBytes());
+
+        assertFalse(BinaryFormatter.isBinary(buffer));
+        assertThrows(IllegalArgumentException.class, () -> BinaryFormatter.readHeader(buffer));
+    }
+
+    @Test // Проверка обработки оборванной записи
+    void shouldHandleTruncatedData() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryFormatter.write(output, task);
+        byte[] bytes = output.toByteArray();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, bytes.length - 3);
+
+        assertThrows(IllegalArgumentException.class, () -> BinaryFormatter.read(buffer));
+    }
+}
@@ -130,4 +130,23 @@ public class CSVFormatterTest {
         
         assertEquals("Неверный формат строки данных", exception.getMessage());
     }
+
+    @Test // Проверка кавычек для полей с запятыми, кавычками и переводами строк
+    void shouldQuoteSpecialCharacters() {
+        Task quotedTask = new Task(4, "Имя, с запятой", "Описание \"в кавычках\"\nна двух строках", TaskStatus.NEW);
+
+        String result = CSVFormatter.toString(quotedTask);
+        Task parsedTask = CSVFormatter.fromString(result);
+
+        assertEquals("4,TASK,\"Имя, с запятой\",NEW,\"Описание \"\"в кавычках\"\"\nна двух строках\",", result,
+                "Неверное экранирование полей");
+        assertEquals(quotedTask.getTaskName(), parsedTask.getTaskName(), "Неверное название задачи");
+        assertEquals(quotedTask.getTaskDescription(), parsedTask.getTaskDescription(), "Неверное описание задачи");
+    }
+
+    @Test // Проверка обработки незакрытой кавычки
+    void shouldHandleUnclosedQuote() {
+        assertThrows(IllegalArgumentException.class, () -> CSVFormatter.fromString("1,TASK,\"Имя,NEW,Описание,"),
+                "Метод должен выбрасывать IllegalArgumentException при незакрытой кавычке");
+    }
 }
@@ -0,0 +1,77 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHistoryManagerTest {
+
+    @Test // Проверка порядка, повторного просмотра и удаления в одном потоке
+    void shouldKeepRecencyOrder() {
+        HistoryManager historyManager = new ConcurrentHistoryManager();
+        List<Task> tasks = new ArrayList<>();
+        for (int identifier = 1; identifier <= 100; identifier++) {
+            tasks.add(new Task(identifier, "Задача", "Проверка", TaskStatus.NEW));
+            historyManager.addInHistory(tasks.getLast());
+        }
+        historyManager.addInHistory(tasks.getFirst());
+        historyManager.removeFromHistory(50);
+
+        List<Task> expected = new ArrayList<>(tasks.subList(1, 100));
+        expected.remove(tasks.get(49));
+        expected.add(tasks.getFirst());
+        assertEquals(expected, historyManager.getHistory(), "Неверный порядок истории");
+    }
+
+    @Test // Проверка, что просмотры из нескольких потоков не теряются и сохраняют порядок внутри потока
+    void shouldMergeViewsFromThreads() throws InterruptedException {
+        HistoryManager historyManager = new ConcurrentHistoryManager();
+        int threadCount = 8;
+        int viewsPerThread = 5_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int base = t * 100;
+            Thread thread = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < viewsPerThread; i++) {
+                    historyManager.addInHistory(new Task(base + 1 + i % 100, "Задача", "Проверка", TaskStatus.NEW));
+                    if (i % 1_000 == 0) {
+                        historyManager.getHistory(); // Снимок во время просмотров из других потоков
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(threadCount * 100, history.size(), "Просмотры потеряны или повторены");
+        for (int t = 0; t < threadCount; t++) {
+            int base = t * 100;
+            List<Integer> own = history.stream().map(Task::getTaskId).filter(id -> id > base && id <= base + 100)
+                    .toList();
+            for (int i = 1; i < own.size(); i++) {
+                assertEquals(own.get(i - 1) + 1, own.get(i), "Нарушен порядок просмотров потока");
+            }
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest {
+    private TaskManager taskManager;
+
+    @BeforeEach
+    void beforeEach() {
+        taskManager = Managers.getConcurrent();
+    }
+
+    @Test // Проверка одновременного создания и обновления подзадач разных эпиков из нескольких потоков
+    void shouldKeepEpicsConsistentUnderConcurrentChanges() throws InterruptedException {
+        Epic[] epics = new Epic[4];
+        for (int i = 0; i < epics.length; i++) {
+            epics[i] = new Epic("Эпик " + i, "Проверка");
+            taskManager.createNewEpic(epics[i]);
+        }
+
+        Thread[] threads = new Thread[epics.length * 2];
+        for (int i = 0; i < threads.length; i++) {
+            Epic epic = epics[i % epics.length];
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 200; j++) {
+                    Subtask subtask = new Subtask("Подзадача", "Проверка", TaskStatus.NEW);
+                    taskManager.createNewSubtask(epic, subtask);
+                    taskManager.createNewTask(new Task("Задача", "Проверка", TaskStatus.NEW));
+
+                    Subtask done = new Subtask(subtask.getTaskId(), "Подзадача", "Готово", TaskStatus.DONE);
+                    done.setEpicIdentifier(epic.getTaskId());
+                    taskManager.updateSubtask(done);
+                    taskManager.getEpicById(epic.getTaskId());
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<Integer> identifiers = new HashSet<>();
+        taskManager.getTasks().forEach(task -> identifiers.add(task.getTaskId()));
+        taskManager.getSubtasks().forEach(subtask -> identifiers.add(subtask.getTaskId()));
+
+        assertAll(
+                () -> assertEquals(1600, taskManager.getTasks().size(), "Неверное количество задач"),
+                () -> assertEquals(1600, taskManager.getSubtasks().size(), "Неверное количество подзадач"),
+                () -> assertEquals(3200, identifiers.size(), "ID задач повторяются"),
+                () -> {
+                    for (Epic epic : epics) {
+                        List<Subtask> subtasks = taskManager.getEpicSubtasks(epic);
+                        assertEquals(400, subtasks.size(), "Неверное количество подзадач эпика");
+                        assertTrue(subtasks.stream().allMatch(subtask -> subtask.getTaskStatus() == TaskStatus.DONE),
+                                "Подзадача эпика не обновлена");
+                        assertEquals(TaskStatus.DONE, epic.getTaskStatus(), "Неверный статус эпика");
+                    }
+                },
+                () -> assertEquals(epics.length, taskManager.getHistory().size(), "Неверная история")
+        );
+    }
+
+    @Test // Проверка, что страницы по курсору не теряют и не повторяют задачи при одновременном создании
+    void shouldPageStablyUnderConcurrentInserts() throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            taskManager.createNewTask(new Task("Задача", "Проверка", TaskStatus.NEW));
+        }
+        List<Task> existing = taskManager.getTasks(0, 500);
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                taskManager.createNewTask(new Task("Новая задача", "Проверка", TaskStatus.NEW));
+            }
+        });
+        writer.start();
+        List<Task> paged = new ArrayList<>();
+        for (List<Task> page = taskManager.getTasks(0, 50); !page.isEmpty() && paged.size() < 500;
+             page = taskManager.getTasks(page.getLast().getTaskId(), 50)) {
+            paged.addAll(page);
+        }
+        writer.join();
+
+        assertAll(
+                () -> assertEquals(existing, paged.subList(0, 500), "Прежние задачи пропущены или повторены"),
+                () -> assertEquals(paged.size(), new HashSet<>(paged).size(), "Задачи повторяются на страницах")
+        );
+    }
+
+    @Test // Проверка, что подзадача не создается для удаленного эпика и удаляется вместе с эпиком
+    void shouldNotCreateSubtaskForDeletedEpic() {
+        Epic epic = new Epic("Эпик", "Проверка");
+        taskManager.createNewEpic(epic);
+        Subtask subtask = new Subtask("Подзадача", "Проверка", TaskStatus.IN_PROGRESS);
+        taskManager.createNewSubtask(epic, subtask);
+
+        taskManager.deleteEpicById(epic.getTaskId());
+        taskManager.createNewSubtask(epic, new Subtask("Подзадача 2", "Проверка", TaskStatus.NEW));
+
+        assertAll(
+                () -> assertTrue(taskManager.getEpics().isEmpty(), "Эпик не удален"),
+                () -> assertTrue(taskManager.getSubtasks().isEmpty(), "Подзадачи не удалены")
+        );
+    }
+
+    @Test // Проверка копии подзадач эпика и изменения подзадачи, эпик которой уже удален
+    void shouldIgnoreSubtaskChangesOfDeletedEpic() {
+        Epic epic = new Epic("Эпик", "Проверка");
+        taskManager.createNewEpic(epic);
+        Subtask subtask = new Subtask("Подзадача", "Проверка", TaskStatus.NEW);
+        taskManager.createNewSubtask(epic, subtask);
+        List<Subtask> copy = taskManager.getEpicSubtasks(epic);
+        copy.clear();
+        int subtasksCount = epic.getSubtasks().size();
+
+        taskManager.deleteEpicById(epic.getTaskId());
+        subtask.setTaskStatus(TaskStatus.DONE);
+
+        assertAll(
+                () -> assertEquals(1, subtasksCount, "Возвращен живой список подзадач эпика"),
+                () -> assertNull(taskManager.updateSubtask(subtask), "Обновлена подзадача удаленного эпика"),
+                () -> assertNull(taskManager.deleteSubtaskById(subtask.getTaskId()),
+                        "Удалена подзадача удаленного эпика"),
+                () -> assertEquals(List.of(subtask), taskManager.getEpicSubtasks(epic),
+                        "Неверная копия подзадач удаленного эпика"),
+                () -> assertTrue(taskManager.getSubtasks().isEmpty(), "Подзадача восстановлена")
+        );
+    }
+
+    @Test // Проверка запроса по подзадачам эпика и диапазону ID
+    void shouldQueryByEpicAndIdRange() {
+        Epic epic = new Epic("Эпик", "Проверка");
+        taskManager.createNewEpic(epic);
+        List<Subtask> subtasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            subtasks.add(new Subtask("Подзадача " + i, "Проверка", i < 10 ? TaskStatus.NEW : TaskStatus.DONE));
+        }
+        taskManager.createNewSubtasks(epic, subtasks);
+        int first = subtasks.getFirst().getTaskId();
+
+        TaskQuery byEpic = taskManager.query().epic(epic.getTaskId()).status(TaskStatus.DONE).limit(3);
+        TaskQuery byRange = taskManager.query().ids(first + 5, first + 7);
+
+        assertAll(
+                () -> assertEquals(subtasks.subList(10, 13), byEpic.list(), "Неверный результат по эпику"),
+                () -> assertTrue(byEpic.explain().startsWith("подзадачи эпика"), byEpic.explain()),
+                () -> assertEquals(subtasks.subList(5, 8), byRange.list(), "Неверный результат по диапазону ID"),
+                () -> assertTrue(byRange.explain().startsWith("порядок ID"), byRange.explain())
+        );
+    }
+
+    @Test // Проверка отката транзакции в потокобезопасном менеджере
+    void shouldRollbackTransaction() {
+        Epic epic = new Epic("Эпик", "Проверка");
+        taskManager.createNewEpic(epic);
+
+        assertThrows(IllegalStateException.class, () -> taskManager.inTransaction(manager -> {
+            manager.createNewSubtask(epic, new Subtask("Подзадача", "Проверка", TaskStatus.DONE));
+            manager.deleteEpicById(epic.getTaskId());
+            throw new IllegalStateException("Отмена");
+        }));
+        taskManager.createNewSubtask(epic, new Subtask("Подзадача", "Проверка", TaskStatus.IN_PROGRESS));
+
+        assertAll(
+                () -> assertEquals(List.of(epic), taskManager.getEpics(), "Эпик не восстановлен"),
+                () -> assertEquals(1, taskManager.getEpicSubtasks(epic).size(), "Неверные подзадачи эпика"),
+                () -> assertEquals(TaskStatus.IN_PROGRESS, epic.getTaskStatus(), "Неверный статус эпика")
+        );
+    }
+}
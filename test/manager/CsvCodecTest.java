@@ -0,0 +1,80 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import tasks.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvCodecTest {
+
+    @Test // Проверка записи в Appendable и разбора по смещениям внутри большей строки
+    void shouldEncodeAndDecodeCharSequence() throws IOException {
+        Subtask subtask = new Subtask(-7, "Подзадача 😀", "Описание", TaskStatus.IN_PROGRESS);
+        subtask.setEpicIdentifier(Integer.MAX_VALUE);
+
+        StringBuilder builder = new StringBuilder("префикс|");
+        int start = builder.length();
+        CsvCodec.encode(subtask, builder);
+        int end = builder.length();
+        builder.append("|суффикс");
+
+        Subtask decoded = CsvCodec.decode(builder, start, end);
+
+        assertAll(
+                () -> assertEquals(CSVFormatter.toString(subtask), builder.substring(start, end),
+                        "Запись кодека отличается от CSVFormatter"),
+                () -> assertEquals(-7, decoded.getTaskId(), "Неверный ID"),
+                () -> assertEquals("Подзадача 😀", decoded.getTaskName(), "Неверное название"),
+                () -> assertEquals(TaskStatus.IN_PROGRESS, decoded.getTaskStatus(), "Неверный статус"),
+                () -> assertEquals(Integer.MAX_VALUE, decoded.getEpicIdentifier(), "Неверный ID эпика")
+        );
+    }
+
+    @Test // Проверка записи в ByteBuffer в кодировке UTF-8 и обратного разбора
+    void shouldEncodeAndDecodeByteBuffer() {
+        Epic epic = new Epic(Integer.MIN_VALUE, "Эпик 😀", "Описание эпика");
+        epic.setTaskStatus(TaskStatus.DONE);
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        buffer.put((byte) '#');
+
+        CsvCodec.encode(epic, buffer);
+        int end = buffer.position();
+        Epic decoded = new CsvCodec().decode(buffer, 1, end);
+
+        assertAll(
+                () -> assertEquals(CSVFormatter.toString(epic),
+                        new String(buffer.array(), 1, end - 1, StandardCharsets.UTF_8),
+                        "Байты кодека отличаются от CSVFormatter"),
+                () -> assertEquals(Integer.MIN_VALUE, decoded.getTaskId(), "Неверный ID"),
+                () -> assertEquals("Эпик 😀", decoded.getTaskName(), "Неверное название"),
+                () -> assertEquals(TaskStatus.DONE, decoded.getTaskStatus(), "Неверный статус"),
+                () -> assertEquals(CsvCodec.utf8Length(CSVFormatter.toString(epic)), end - 1,
+                        "Неверная длина в UTF-8")
+        );
+    }
+
+    @Test // Проверка разбора типа и статуса без учета регистра и пустого описания в полной строке
+    void shouldDecodeLowerCaseAndEmptyDescription() {
+        String line = "5,task,Задача,in_progress,,";
+        Task task = CsvCodec.decode(line, 0, line.length());
+
+        assertAll(
+                () -> assertEquals(TaskStatus.IN_PROGRESS, task.getTaskStatus(), "Неверный статус"),
+                () -> assertEquals("", task.getTaskDescription(), "Описание должно быть пустым")
+        );
+    }
+
+    @Test // Проверка обработки неизвестного типа и статуса
+    void shouldRejectUnknownTypeAndStatus() {
+        String unknownType = "1,TASKS,a,NEW,b,";
+        String unknownStatus = "1,TASK,a,OLD,b,";
+
+        assertThrows(IllegalArgumentException.class, () -> CsvCodec.decode(unknownType, 0, unknownType.length()));
+        assertThrows(IllegalArgumentException.class,
+                () -> CsvCodec.decode(unknownStatus, 0, unknownStatus.length()));
+    }
+}
@@ -12,8 +12,11 @@ import tasks.TaskStatus;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -344,4 +347,548 @@ public class FileBackedTaskManagerTest {
         assertThrows(ManagerSaveException.class,
                 () -> manager.createNewTask(task));
     }
+
+    @Test // Проверка восстановления из снимка и журнала изменений
+    void shouldRestoreFromJournal() {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, StorageSettings.journal());
+
+        manager.createNewTask(task);
+        manager.createNewEpic(epic);
+        manager.createNewSubtask(epic, subtask);
+        Task updatedTask = new Task(task.getTaskId(), "Задача #1", "Обновление", TaskStatus.DONE);
+        manager.updateTask(updatedTask);
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile,
+                StorageSettings.journal());
+
+        assertAll(
+                () -> assertEquals("Обновление", loadedManager.getTasks().getFirst().getTaskDescription(),
+                        "Обновление задачи не восстановилось"),
+                () -> assertEquals(1, loadedManager.getEpics().size(), "Неверное количество эпиков"),
+                () -> assertEquals(1, loadedManager.getSubtasks().size(), "Неверное количество подзадач"),
+                () -> assertEquals(TaskStatus.IN_PROGRESS, loadedManager.getEpics().getFirst().getTaskStatus(),
+                        "Статус эпика не восстановился"),
+                () -> assertEquals(1, loadedManager.getEpics().getFirst().getSubtasks().size(),
+                        "Подзадача не привязана к эпику")
+        );
+    }
+
+    @Test // Проверка, что изменения в режиме журнала не перезаписывают основной файл
+    void journalShouldNotRewriteSnapshot() throws IOException {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, StorageSettings.journal());
+
+        manager.createNewTask(task);
+        String snapshot = Files.readString(journaledFile.toPath());
+
+        manager.createNewEpic(epic);
+        manager.deleteTaskById(task.getTaskId());
+        manager.close();
+
+        File journalFile = TaskJournal.journalFile(journaledFile);
+        assertEquals(snapshot, Files.readString(journaledFile.toPath()), "Основной файл не должен меняться");
+        assertEquals(2, Files.readAllLines(journalFile.toPath()).size(), "В журнале должно быть 2 записи");
+    }
+
+    @Test // Проверка удаления подзадач вместе с эпиком при восстановлении из журнала
+    void shouldDropSubtasksOfDeletedEpicFromJournal() {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, StorageSettings.journal());
+
+        manager.createNewTask(task);
+        manager.createNewEpic(epic);
+        manager.createNewSubtask(epic, subtask);
+        manager.deleteEpicById(epic.getTaskId());
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile);
+
+        assertAll(
+                () -> assertEquals(1, loadedManager.getTasks().size(), "Неверное количество задач"),
+                () -> assertTrue(loadedManager.getEpics().isEmpty(), "Эпик не удален"),
+                () -> assertTrue(loadedManager.getSubtasks().isEmpty(), "Подзадача не удалена вместе с эпиком")
+        );
+    }
+
+    @Test // Проверка, что удаленные задачи не возвращаются из журнала после повторной загрузки
+    void shouldNotRestoreDeletedTasksFromJournalAfterReload() {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, StorageSettings.journal());
+        manager.createNewTask(task);
+        manager.createNewTask(new Task("Задача #2", "Проверка", TaskStatus.NEW));
+        manager.close();
+
+        FileBackedTaskManager snapshotManager = FileBackedTaskManager.loadFromFile(journaledFile);
+        snapshotManager.deleteAllTasks();
+        snapshotManager.close();
+        FileBackedTaskManager afterSnapshot = FileBackedTaskManager.loadFromFile(journaledFile);
+        int snapshotCount = afterSnapshot.getTasks().size();
+        boolean isJournalLeft = TaskJournal.journalFile(journaledFile).exists();
+
+        afterSnapshot.createNewTask(new Task("Задача #3", "Проверка", TaskStatus.NEW));
+        afterSnapshot.close();
+        FileBackedTaskManager journalManager = FileBackedTaskManager.loadFromFile(journaledFile,
+                StorageSettings.journal());
+        journalManager.deleteAllTasks();
+        journalManager.close();
+        FileBackedTaskManager afterJournal = FileBackedTaskManager.loadFromFile(journaledFile,
+                StorageSettings.journal());
+
+        assertAll(
+                () -> assertEquals(0, snapshotCount, "Задача вернулась из журнала после полной перезаписи"),
+                () -> assertFalse(isJournalLeft, "Журнал не удален после полной перезаписи"),
+                () -> assertTrue(afterJournal.getTasks().isEmpty(), "Задача вернулась после удаления в журнале")
+        );
+    }
+
+    @Test // Проверка очистки журнала после записи снимка
+    void checkpointShouldTruncateJournal() throws IOException {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, StorageSettings.journal());
+
+        manager.createNewTask(task);
+        manager.createNewEpic(epic);
+        manager.checkpoint();
+        manager.close();
+
+        assertEquals(0, Files.size(TaskJournal.journalFile(journaledFile).toPath()), "Журнал не очищен");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile);
+        assertEquals(1, loadedManager.getTasks().size(), "Неверное количество задач");
+        assertEquals(1, loadedManager.getEpics().size(), "Неверное количество эпиков");
+    }
+
+    @Test // Проверка пропуска недописанной последней записи журнала
+    void shouldIgnoreTornJournalRecord() throws IOException {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, StorageSettings.journal());
+
+        manager.createNewTask(task);
+        manager.createNewEpic(epic);
+        manager.close();
+        Files.writeString(TaskJournal.journalFile(journaledFile).toPath(), "+,9,TASK,Обрыв",
+                StandardOpenOption.APPEND);
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile);
+        assertEquals(1, loadedManager.getTasks().size(), "Недописанная запись не должна применяться");
+        assertEquals(1, loadedManager.getEpics().size(), "Неверное количество эпиков");
+    }
+
+    @Test // Проверка записи журнала, оборванной посреди многобайтового символа, и записи после нее
+    void shouldIgnoreJournalRecordTornInsideCharacter() throws IOException {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, StorageSettings.journal());
+
+        manager.createNewTask(task);
+        manager.close();
+        byte[] record = "+,9,TASK,Обрыв".getBytes(StandardCharsets.UTF_8);
+        Files.write(TaskJournal.journalFile(journaledFile).toPath(), Arrays.copyOf(record, record.length - 1),
+                StandardOpenOption.APPEND);
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile,
+                StorageSettings.journal());
+        int loadedCount = loadedManager.getTasks().size();
+        loadedManager.createNewTask(new Task("Задача #2", "Проверка", TaskStatus.DONE));
+        loadedManager.close();
+        FileBackedTaskManager reloadedManager = FileBackedTaskManager.loadFromFile(journaledFile,
+                StorageSettings.journal());
+
+        assertAll(
+                () -> assertEquals(1, loadedCount, "Недописанная запись не должна применяться"),
+                () -> assertEquals(2, reloadedManager.getTasks().size(), "Запись после обрыва не восстановлена"),
+                () -> assertNull(reloadedManager.getTaskById(9), "Недописанная запись применена после дозаписи")
+        );
+    }
+
+    @Test // Проверка фонового сжатия журнала по числу записей
+    void shouldCompactJournalInBackground() throws IOException {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        StorageSettings settings = StorageSettings.journal().setCompactAfterRecords(10);
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, settings);
+
+        manager.createNewEpic(epic);
+        for (int i = 0; i < 25; i++) {
+            manager.createNewSubtask(epic, new Subtask("Подзадача " + i, "Проверка", TaskStatus.NEW));
+        }
+        manager.awaitCompaction();
+
+        File journalFile = TaskJournal.journalFile(journaledFile);
+        // Активный файл может отсутствовать, если последняя запись сразу повернула журнал
+        long journalLines = journalFile.exists() ? Files.readAllLines(journalFile.toPath()).size() : 0;
+        assertTrue(journalLines < 50, "Журнал не сжат");
+        assertFalse(new File(journalFile.getPath() + ".1").exists(), "Сегмент журнала не удален после сжатия");
+
+        manager.deleteTaskById(404);
+        manager.updateSubtask(new Subtask(epic.getSubtasks().getFirst().getTaskId(), "Подзадача 0",
+                "Обновление", TaskStatus.DONE));
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile, settings);
+
+        assertAll(
+                () -> assertEquals(25, loadedManager.getSubtasks().size(), "Неверное количество подзадач"),
+                () -> assertEquals(25, loadedManager.getEpics().getFirst().getSubtasks().size(),
+                        "Подзадачи не привязаны к эпику"),
+                () -> assertEquals(TaskStatus.IN_PROGRESS, loadedManager.getEpics().getFirst().getTaskStatus(),
+                        "Статус эпика не восстановился")
+        );
+        loadedManager.close();
+    }
+
+    @Test // Проверка, что ошибка фонового сжатия выбрасывается при закрытии, а не теряется
+    void shouldThrowBackgroundCompactionFailureOnClose() throws IOException, InterruptedException {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        StorageSettings settings = StorageSettings.journal().setCompactAfterRecords(10);
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, settings);
+        manager.createNewTask(task);
+        // Каталог на месте временного файла не дает записать снимок при сжатии
+        Path blocker = Files.createDirectory(Path.of(journaledFile.getPath() + ".tmp"));
+
+        for (int i = 0; i < 10; i++) {
+            manager.createNewTask(new Task("Задача #" + i, "Проверка", TaskStatus.NEW));
+        }
+        Thread.sleep(50); // Сжатие завершается ошибкой до следующей записи
+        manager.createNewTask(new Task("Задача после сжатия", "Проверка", TaskStatus.NEW));
+
+        ManagerSaveException exception = assertThrows(ManagerSaveException.class, manager::close);
+        Files.delete(blocker);
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile, settings);
+
+        assertAll(
+                () -> assertTrue(exception.getMessage().startsWith("Ошибка фонового сжатия журнала"),
+                        exception.getMessage()),
+                () -> assertEquals(12, loadedManager.getTasks().size(), "Задачи из сегментов журнала потеряны")
+        );
+        loadedManager.close();
+    }
+
+    @Test // Проверка восстановления, если сжатие прервалось до удаления сегмента журнала
+    void shouldReplayLeftoverJournalSegments() throws IOException {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, StorageSettings.journal());
+
+        manager.createNewTask(task);
+        manager.createNewEpic(epic);
+        manager.createNewSubtask(epic, subtask);
+        manager.close();
+
+        File journalFile = TaskJournal.journalFile(journaledFile);
+        Files.move(journalFile.toPath(), Path.of(journalFile.getPath() + ".1"));
+        Files.writeString(journalFile.toPath(), "-," + task.getTaskId() + "\n");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile);
+
+        assertAll(
+                () -> assertTrue(loadedManager.getTasks().isEmpty(), "Задача не удалена"),
+                () -> assertEquals(1, loadedManager.getEpics().size(), "Неверное количество эпиков"),
+                () -> assertEquals(1, loadedManager.getSubtasks().size(), "Неверное количество подзадач")
+        );
+    }
+
+    @Test // Проверка группового сохранения при одновременных изменениях из нескольких потоков
+    void shouldPersistConcurrentChangesWithGroupCommit() throws InterruptedException {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        StorageSettings settings = StorageSettings.journal()
+                .setDurability(Durability.GROUP_COMMIT)
+                .setGroupCommit(2, 16);
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, settings);
+        manager.createNewEpic(epic);
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 50; j++) {
+                    manager.createNewTask(new Task("Задача", "Проверка", TaskStatus.NEW));
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile, settings);
+        assertEquals(200, loadedManager.getTasks().size(), "Не все задачи сохранены");
+        assertEquals(1, loadedManager.getEpics().size(), "Неверное количество эпиков");
+    }
+
+    @Test // Проверка сохранения с fsync после каждого изменения
+    void shouldPersistWithPerOperationDurability() {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        StorageSettings settings = StorageSettings.journal().setDurability(Durability.PER_OPERATION);
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, settings);
+
+        manager.createNewTask(task);
+        manager.createNewEpic(epic);
+        manager.createNewSubtask(epic, subtask);
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile, settings);
+        assertEquals(1, loadedManager.getTasks().size(), "Неверное количество задач");
+        assertEquals(1, loadedManager.getSubtasks().size(), "Неверное количество подзадач");
+    }
+
+    @Test // Проверка отложенной записи с объединением повторных изменений одной задачи
+    void shouldPersistWithWriteBehind() throws IOException {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        StorageSettings settings = StorageSettings.journal().setWriteBehind(4);
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, settings);
+
+        manager.createNewEpic(epic);
+        manager.createNewSubtask(epic, subtask);
+        for (int i = 0; i < 100; i++) {
+            TaskStatus status = i % 2 == 0 ? TaskStatus.DONE : TaskStatus.NEW;
+            manager.updateSubtask(new Subtask(subtask.getTaskId(), "Подзадача #1", "Версия " + i, status));
+        }
+        manager.flush();
+
+        List<String> records = Files.readAllLines(TaskJournal.journalFile(journaledFile).toPath());
+        assertTrue(records.size() <= 202, "В журнале лишние записи");
+        assertTrue(records.getLast().contains(String.valueOf(epic.getTaskId())), "Последним должен быть эпик");
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile);
+        Subtask loadedSubtask = loadedManager.getSubtasks().getFirst();
+
+        assertEquals("Версия 99", loadedSubtask.getTaskDescription(), "Не записано последнее изменение");
+        assertEquals(TaskStatus.NEW, loadedManager.getEpics().getFirst().getTaskStatus(),
+                "Статус эпика не восстановился");
+    }
+
+    @Test // Проверка отложенной записи при заполненной очереди и фоновом сжатии
+    void shouldPersistWithWriteBehindUnderBackpressure() {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        StorageSettings settings = StorageSettings.journal()
+                .setWriteBehind(1)
+                .setCompactAfterRecords(50);
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, settings);
+
+        manager.createNewTask(task);
+        for (int i = 0; i < 500; i++) {
+            manager.createNewTask(new Task("Задача " + i, "Проверка", TaskStatus.NEW));
+        }
+        manager.deleteTaskById(task.getTaskId());
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile);
+        assertEquals(500, loadedManager.getTasks().size(), "Не все задачи сохранены");
+    }
+
+    @Test // Отложенная запись не поддерживается в режиме полной перезаписи файла
+    void writeBehindShouldRequireJournal() {
+        StorageSettings settings = StorageSettings.snapshot().setWriteBehind(16);
+
+        assertThrows(IllegalArgumentException.class, () -> new FileBackedTaskManager(file, settings));
+    }
+
+    @Test // Проверка сохранения в двоичном формате и его определения при загрузке
+    void shouldSaveAndLoadBinarySnapshot() throws IOException {
+        File binaryFile = tempDir.resolve("tasks.bin").toFile();
+        StorageSettings settings = StorageSettings.snapshot().setSnapshotFormat(SnapshotFormat.BINARY);
+        FileBackedTaskManager manager = new FileBackedTaskManager(binaryFile, settings);
+
+        manager.createNewTask(task);
+        manager.createNewEpic(epic);
+        manager.createNewSubtask(epic, subtask);
+
+        assertNotEquals('i', Files.readAllBytes(binaryFile.toPath())[0], "Файл сохранен не в двоичном формате");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(binaryFile);
+
+        assertAll(
+                () -> assertEquals(task, loadedManager.getTasks().getFirst(), "Задача не совпадает"),
+                () -> assertEquals(epic, loadedManager.getEpics().getFirst(), "Эпик не совпадает"),
+                () -> assertEquals(subtask, loadedManager.getSubtasks().getFirst(), "Подзадача не совпадает"),
+                () -> assertEquals(TaskStatus.IN_PROGRESS, loadedManager.getEpics().getFirst().getTaskStatus(),
+                        "Статус эпика не совпадает")
+        );
+    }
+
+    @Test // Проверка выгрузки в CSV при двоичном основном файле
+    void shouldExportBinaryManagerToCsv() {
+        File binaryFile = tempDir.resolve("tasks.bin").toFile();
+        File csvFile = tempDir.resolve("export.csv").toFile();
+        StorageSettings settings = StorageSettings.journal().setSnapshotFormat(SnapshotFormat.BINARY);
+        FileBackedTaskManager manager = new FileBackedTaskManager(binaryFile, settings);
+
+        manager.createNewTask(task);
+        manager.createNewEpic(epic);
+        manager.exportToCsv(csvFile);
+        manager.close();
+
+        FileBackedTaskManager exported = FileBackedTaskManager.loadFromFile(csvFile);
+        assertEquals(1, exported.getTasks().size(), "Неверное количество задач");
+        assertEquals(1, exported.getEpics().size(), "Неверное количество эпиков");
+    }
+
+    @Test // Проверка привязки большого числа подзадач к эпикам и отбрасывания подзадач без эпика
+    void shouldLinkManySubtasksOnLoad() throws IOException {
+        StringBuilder content = new StringBuilder(CSVFormatter.getHeader()).append('\n');
+        for (int i = 1; i <= 100; i++) {
+            content.append(i).append(",EPIC,Эпик,NEW,Описание,\n");
+        }
+        for (int i = 101; i <= 20_100; i++) {
+            int epicId = i % 101 + 1; // ID 101 не существует, такие подзадачи должны быть отброшены
+            content.append(i).append(",SUBTASK,Подзадача,DONE,Описание,").append(epicId).append('\n');
+        }
+        Files.writeString(file.toPath(), content);
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file);
+
+        int linked = 0;
+        for (Epic loadedEpic : loadedManager.getEpics()) {
+            linked += loadedEpic.getSubtasksIds().size();
+            for (Integer subtaskId : loadedEpic.getSubtasksIds()) {
+                assertEquals(loadedEpic.getTaskId(), loadedManager.getSubtaskById(subtaskId).getEpicIdentifier(),
+                        "Подзадача привязана к чужому эпику");
+            }
+        }
+        assertEquals(loadedManager.getSubtasks().size(), linked, "Привязаны не все подзадачи");
+        assertTrue(linked < 20_000, "Подзадачи без эпика должны быть отброшены");
+    }
+
+    @Test // Проверка сохранения названий и описаний с запятыми, кавычками и переводами строк
+    void shouldLoadFieldsWithCommasQuotesAndLineBreaks() {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, StorageSettings.journal());
+        String name = "Купить: хлеб, молоко";
+        String description = "Первая строка\r\nВторая \"в кавычках\"\n,";
+
+        manager.createNewTask(new Task(name, description, TaskStatus.NEW));
+        manager.checkpoint(); // Задача в снимке
+        manager.createNewEpic(new Epic(name, description)); // Эпик в журнале
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile,
+                StorageSettings.journal());
+
+        assertAll(
+                () -> assertEquals(name, loadedManager.getTasks().getFirst().getTaskName(),
+                        "Название задачи из снимка не совпадает"),
+                () -> assertEquals(description, loadedManager.getTasks().getFirst().getTaskDescription(),
+                        "Описание задачи из снимка не совпадает"),
+                () -> assertEquals(name, loadedManager.getEpics().getFirst().getTaskName(),
+                        "Название эпика из журнала не совпадает"),
+                () -> assertEquals(description, loadedManager.getEpics().getFirst().getTaskDescription(),
+                        "Описание эпика из журнала не совпадает")
+        );
+    }
+
+    @Test // Проверка, что сохранение с кэшем строк совпадает с полной перезаписью файла
+    void shouldSaveOnlyChangedRowsConsistently() throws IOException {
+        File exportFile = tempDir.resolve("export.csv").toFile();
+        taskManager.createNewTask(task);
+        taskManager.createNewTask(new Task("Задача #2", "Проверка", TaskStatus.NEW));
+        taskManager.createNewEpic(epic);
+        taskManager.createNewSubtask(epic, subtask);
+        Epic secondEpic = new Epic("Эпик #2", "Проверка");
+        taskManager.createNewEpic(secondEpic);
+        taskManager.createNewSubtask(secondEpic, new Subtask("Подзадача #2", "Проверка", TaskStatus.DONE));
+
+        taskManager.updateTask(new Task(task.getTaskId(), "Задача #1", "Обновление", TaskStatus.DONE));
+        taskManager.updateSubtask(new Subtask(subtask.getTaskId(), "Подзадача #1", "Обновление", TaskStatus.DONE));
+        taskManager.deleteEpicById(secondEpic.getTaskId());
+        taskManager.exportToCsv(exportFile);
+
+        assertEquals(Files.readString(exportFile.toPath()), Files.readString(file.toPath()),
+                "Файл не совпадает с полной перезаписью");
+
+        taskManager.deleteAllSubtasks();
+        taskManager.exportToCsv(exportFile);
+
+        assertEquals(Files.readString(exportFile.toPath()), Files.readString(file.toPath()),
+                "Файл не совпадает с полной перезаписью после удаления подзадач");
+    }
+
+    @Test // Проверка сохранения транзакции одной пачкой записей журнала и отсутствия записей при откате
+    void shouldPersistTransactionOnce() throws IOException {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, StorageSettings.journal());
+        manager.createNewEpic(epic);
+
+        manager.inTransaction(batch -> {
+            for (int i = 0; i < 5; i++) {
+                batch.createNewSubtask(epic, new Subtask("Подзадача " + i, "Проверка", TaskStatus.DONE));
+            }
+        });
+        List<String> records = Files.readAllLines(TaskJournal.journalFile(journaledFile).toPath());
+
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(batch -> {
+            batch.deleteAllSubtasks();
+            throw new IllegalStateException("Ошибка внутри транзакции");
+        }));
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile,
+                StorageSettings.journal());
+
+        assertAll(
+                () -> assertEquals(10, records.size(), "Неверное количество записей журнала"),
+                () -> assertTrue(records.getLast().contains(",DONE,"),
+                        "Последняя запись эпика должна содержать пересчитанный статус"),
+                () -> assertEquals(records, Files.readAllLines(TaskJournal.journalFile(journaledFile).toPath()),
+                        "Откаченная транзакция не должна попасть в журнал"),
+                () -> assertEquals(5, loadedManager.getSubtasks().size(), "Неверное количество подзадач"),
+                () -> assertEquals(TaskStatus.DONE, loadedManager.getEpics().getFirst().getTaskStatus(),
+                        "Статус эпика не восстановился")
+        );
+        loadedManager.close();
+    }
+
+    @Test // Проверка, что в журнал попадают только подзадачи, созданные массово
+    void shouldJournalOnlyCreatedSubtasks() throws IOException {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, StorageSettings.journal());
+        Subtask secondSubtask = new Subtask("Подзадача #2", "Проверка", TaskStatus.NEW);
+
+        manager.createNewEpic(epic);
+        manager.createNewSubtask(epic, subtask);
+        long journalSize = Files.size(TaskJournal.journalFile(journaledFile).toPath());
+        manager.createNewSubtasks(new Epic(404, "Эпик #2", "Нет в менеджере"), List.of(secondSubtask));
+        manager.createNewSubtasks(epic, List.of(subtask));
+        long rejectedSize = Files.size(TaskJournal.journalFile(journaledFile).toPath());
+        manager.createNewSubtasks(epic, List.of(subtask, secondSubtask, secondSubtask));
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile,
+                StorageSettings.journal());
+
+        assertAll(
+                () -> assertEquals(journalSize, rejectedSize, "Отклоненные подзадачи записаны в журнал"),
+                () -> assertEquals(List.of(subtask, secondSubtask), loadedManager.getSubtasks(),
+                        "Неверные подзадачи после загрузки"),
+                () -> assertEquals(List.of(subtask, secondSubtask), loadedManager.getEpics().getFirst().getSubtasks(),
+                        "Неверные подзадачи эпика после загрузки")
+        );
+        loadedManager.close();
+    }
+
+    @Test // Проверка сохранения массовых операций в режиме журнала
+    void shouldRestoreBulkChanges() {
+        File journaledFile = tempDir.resolve("journaled.csv").toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(journaledFile, StorageSettings.journal());
+        Subtask secondSubtask = new Subtask("Подзадача #2", "Проверка", TaskStatus.NEW);
+
+        manager.createNewEpics(List.of(epic));
+        manager.createNewTasks(List.of(task));
+        manager.createNewSubtasks(epic, List.of(subtask, secondSubtask));
+        manager.updateSubtasks(List.of(new Subtask(subtask.getTaskId(), "Подзадача #1", "Проверка", TaskStatus.DONE)));
+        manager.deleteByIds(new int[]{task.getTaskId(), secondSubtask.getTaskId()});
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(journaledFile,
+                StorageSettings.journal());
+
+        assertAll(
+                () -> assertTrue(loadedManager.getTasks().isEmpty(), "Удаленная задача восстановлена"),
+                () -> assertEquals(List.of(subtask), loadedManager.getEpics().getFirst().getSubtasks(),
+                        "Неверные подзадачи эпика"),
+                () -> assertEquals(TaskStatus.DONE, loadedManager.getEpics().getFirst().getTaskStatus(),
+                        "Статус эпика не восстановился")
+        );
+        loadedManager.close();
+    }
 }
@@ -375,4 +375,22 @@ class InMemoryHistoryManagerTest {
             return new Subtask(identifier,"Вещи2", "Упаковать вещи2", TaskStatus.DONE);
         }
     }
+
+    @Test // Проверка вытеснения самого давнего просмотра при заполнении истории
+    void shouldEvictLeastRecentlyViewed() {
+        HistoryManager bounded = Managers.getDefaultHistory(2);
+        bounded.addInHistory(task);
+        bounded.addInHistory(epic);
+        bounded.addInHistory(task);
+        bounded.addInHistory(subtask);
+
+        assertAll(
+                () -> assertEquals(List.of(task, subtask), bounded.getHistory(), "Вытеснен не самый давний просмотр"),
+                () -> assertEquals(2, bounded.getCapacity(), "Неверный размер истории"),
+                () -> assertEquals(Integer.MAX_VALUE, historyManager.getCapacity(),
+                        "История по умолчанию не должна ограничиваться"),
+                () -> assertThrows(IllegalArgumentException.class, () -> Managers.getDefaultHistory(0),
+                        "Нулевой размер истории не отклонен")
+        );
+    }
 }
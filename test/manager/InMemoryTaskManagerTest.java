@@ -6,8 +6,18 @@ import tasks.Epic;
 import tasks.Subtask;
 import tasks.Task;
 import tasks.TaskStatus;
+import tasks.TaskType;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -829,4 +839,590 @@ class InMemoryTaskManagerTest {
     }
 
 
+
+    @Test // Проверка пересчета статуса эпика при фиксации транзакции
+    void shouldRecomputeEpicStatusOnCommit() {
+        taskManager.createNewEpic(epic);
+
+        taskManager.inTransaction(manager -> {
+            for (int i = 0; i < 10; i++) {
+                manager.createNewSubtask(epic, new Subtask("Подзадача", "Проверка", TaskStatus.DONE));
+            }
+            assertEquals(TaskStatus.NEW, epic.getTaskStatus(), "Статус эпика пересчитан до фиксации");
+        });
+
+        assertAll(
+                () -> assertEquals(10, taskManager.getEpicSubtasks(epic).size(), "Неверное количество подзадач"),
+                () -> assertEquals(TaskStatus.DONE, epic.getTaskStatus(), "Статус эпика не пересчитан")
+        );
+    }
+
+    @Test // Проверка отката всех изменений транзакции при исключении
+    void shouldRollbackTransactionOnException() {
+        taskManager.createNewTask(task);
+        taskManager.createNewEpic(epic);
+        taskManager.createNewSubtask(epic, subtask);
+        taskManager.getTaskById(task.getTaskId());
+
+        assertThrows(IllegalStateException.class, () -> taskManager.inTransaction(manager -> {
+            manager.deleteTaskById(task.getTaskId());
+            manager.updateEpic(new Epic(epic.getTaskId(), "Эпик #2", "Обновление"));
+            manager.updateSubtask(new Subtask(subtask.getTaskId(), "Подзадача #1", "Проверка", TaskStatus.DONE));
+            manager.createNewSubtask(epic, new Subtask("Подзадача #2", "Проверка", TaskStatus.NEW));
+            manager.deleteAllSubtasks();
+            manager.createNewTask(new Task("Задача #2", "Проверка", TaskStatus.NEW));
+            throw new IllegalStateException("Ошибка внутри транзакции");
+        }));
+
+        Task newTask = new Task("Задача #3", "Проверка", TaskStatus.NEW);
+        taskManager.createNewTask(newTask);
+
+        assertAll(
+                () -> assertEquals(List.of(task, newTask), taskManager.getTasks(), "Задачи не восстановлены"),
+                () -> assertEquals(epic.getTaskId() + 2, newTask.getTaskId(), "ID транзакции не освобождены"),
+                () -> assertEquals("Эпик #1", taskManager.getEpics().getFirst().getTaskName(),
+                        "Эпик не восстановлен"),
+                () -> assertEquals(List.of(subtask), taskManager.getEpics().getFirst().getSubtasks(),
+                        "Подзадачи эпика не восстановлены"),
+                () -> assertEquals(TaskStatus.IN_PROGRESS, taskManager.getEpics().getFirst().getTaskStatus(),
+                        "Статус эпика не восстановлен"),
+                () -> assertEquals(TaskStatus.IN_PROGRESS, taskManager.getSubtasks().getFirst().getTaskStatus(),
+                        "Подзадача не восстановлена"),
+                () -> assertEquals(List.of(task), taskManager.getHistory(), "История не должна измениться")
+        );
+    }
+
+    @Test // Проверка массового создания и обновления
+    void shouldCreateAndUpdateInBulk() {
+        Task secondTask = new Task("Задача #2", "Проверка", TaskStatus.NEW);
+        Subtask secondSubtask = new Subtask("Подзадача #2", "Проверка", TaskStatus.NEW);
+        taskManager.createNewTasks(List.of(task, secondTask));
+        taskManager.createNewEpics(List.of(epic));
+        taskManager.createNewSubtasks(epic, List.of(subtask, secondSubtask));
+
+        List<Subtask> updated = taskManager.updateSubtasks(List.of(
+                new Subtask(subtask.getTaskId(), "Подзадача #1", "Обновление", TaskStatus.DONE),
+                new Subtask(secondSubtask.getTaskId(), "Подзадача #2", "Обновление", TaskStatus.DONE),
+                new Subtask(404, "Подзадача #3", "Нет такой подзадачи", TaskStatus.DONE)));
+
+        assertAll(
+                () -> assertEquals(secondTask.getTaskId(), task.getTaskId() + 1, "ID выделены не подряд"),
+                () -> assertEquals(2, taskManager.getTasks().size(), "Неверное количество задач"),
+                () -> assertEquals(2, updated.size(), "Неверное количество обновленных подзадач"),
+                () -> assertEquals("Обновление", epic.getSubtasks().getFirst().getTaskDescription(),
+                        "Подзадача в эпике не заменена"),
+                () -> assertEquals(TaskStatus.DONE, epic.getTaskStatus(), "Статус эпика не пересчитан")
+        );
+    }
+
+    @Test // Проверка, что массовое создание отклоняет те же подзадачи, что и создание по одной
+    void shouldRejectInvalidSubtasksInBulk() {
+        Epic unknownEpic = new Epic(404, "Эпик #2", "Нет в менеджере");
+        Subtask secondSubtask = new Subtask("Подзадача #2", "Проверка", TaskStatus.NEW);
+        taskManager.createNewEpic(epic);
+        taskManager.createNewSubtask(epic, subtask);
+        int createdId = subtask.getTaskId();
+        Subtask sameAsEpic = new Subtask(epic.getTaskId(), "Подзадача #3", "ID эпика", TaskStatus.NEW);
+
+        taskManager.createNewSubtasks(unknownEpic, List.of(secondSubtask));
+        taskManager.createNewSubtasks(epic, List.of(subtask, sameAsEpic, secondSubtask, secondSubtask));
+
+        assertAll(
+                () -> assertEquals(createdId, subtask.getTaskId(), "Созданная подзадача создана повторно"),
+                () -> assertEquals(epic.getTaskId(), sameAsEpic.getTaskId(), "Создана подзадача с ID эпика"),
+                () -> assertEquals(List.of(subtask, secondSubtask), taskManager.getSubtasks(),
+                        "Неверные подзадачи менеджера"),
+                () -> assertEquals(List.of(subtask, secondSubtask), epic.getSubtasks(), "Неверные подзадачи эпика"),
+                () -> assertTrue(unknownEpic.getSubtasks().isEmpty(), "Создана подзадача эпика не из менеджера")
+        );
+    }
+
+    @Test // Проверка, что создание по одной отклоняет только подзадачу с ID эпика, как и прежде
+    void shouldKeepSingleSubtaskCreationChecks() {
+        Epic unknownEpic = new Epic(404, "Эпик #2", "Нет в менеджере");
+        taskManager.createNewEpic(epic);
+        Subtask sameAsEpic = new Subtask(epic.getTaskId(), "Подзадача #2", "ID эпика", TaskStatus.NEW);
+
+        taskManager.createNewSubtask(epic, sameAsEpic);
+        taskManager.createNewSubtask(unknownEpic, subtask);
+
+        assertAll(
+                () -> assertEquals(epic.getTaskId(), sameAsEpic.getTaskId(), "Создана подзадача с ID эпика"),
+                () -> assertTrue(epic.getSubtasks().isEmpty(), "Подзадача с ID эпика добавлена в эпик"),
+                () -> assertEquals(List.of(subtask), taskManager.getSubtasks(), "Подзадача не создана"),
+                () -> assertEquals(List.of(subtask), unknownEpic.getSubtasks(), "Подзадача не добавлена в эпик"),
+                () -> assertEquals(List.of(epic), taskManager.getEpics(), "Эпик не из менеджера добавлен в менеджер")
+        );
+    }
+
+    @Test // Проверка массового удаления задач разных типов
+    void shouldDeleteByIds() {
+        Subtask secondSubtask = new Subtask("Подзадача #2", "Проверка", TaskStatus.DONE);
+        taskManager.createNewTask(task);
+        taskManager.createNewEpic(epic);
+        taskManager.createNewSubtasks(epic, List.of(subtask, secondSubtask));
+        taskManager.getTaskById(task.getTaskId());
+
+        List<Task> deleted = taskManager.deleteByIds(new int[]{task.getTaskId(), subtask.getTaskId(), 404});
+
+        assertAll(
+                () -> assertEquals(List.of(task, subtask), deleted, "Неверный список удаленных задач"),
+                () -> assertTrue(taskManager.getTasks().isEmpty(), "Задача не удалена"),
+                () -> assertEquals(List.of(secondSubtask), epic.getSubtasks(), "Подзадача не удалена из эпика"),
+                () -> assertEquals(TaskStatus.DONE, epic.getTaskStatus(), "Статус эпика не пересчитан"),
+                () -> assertTrue(taskManager.getHistory().isEmpty(), "Задача не удалена из истории")
+        );
+    }
+
+    @Test // Проверка исправления статуса эпика после изменения статуса подзадачи в обход менеджера
+    void shouldRepairEpicStatuses() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        manager.createNewEpic(epic);
+        manager.createNewSubtask(epic, subtask);
+        subtask.setTaskStatus(TaskStatus.DONE);
+
+        int repaired = manager.repairEpicStatuses();
+
+        assertAll(
+                () -> assertEquals(1, repaired, "Неверное число исправленных эпиков"),
+                () -> assertEquals(TaskStatus.DONE, epic.getTaskStatus(), "Статус эпика не исправлен"),
+                () -> assertEquals(0, manager.repairEpicStatuses(), "Счетчики не исправлены")
+        );
+    }
+
+    @Test // Проверка статуса эпика после изменения статуса подзадачи на месте и обновления той же подзадачи
+    void shouldRefreshEpicStatusAfterInPlaceSubtaskUpdate() {
+        Subtask secondSubtask = new Subtask("Подзадача #2", "Проверка", TaskStatus.NEW);
+        taskManager.createNewEpic(epic);
+        taskManager.createNewSubtask(epic, subtask);
+        taskManager.createNewSubtask(epic, secondSubtask);
+
+        subtask.setTaskStatus(TaskStatus.DONE);
+        taskManager.updateSubtask(subtask);
+        TaskStatus partlyDone = epic.getTaskStatus();
+        secondSubtask.setTaskStatus(TaskStatus.DONE);
+        taskManager.updateSubtasks(List.of(secondSubtask));
+
+        assertAll(
+                () -> assertEquals(TaskStatus.IN_PROGRESS, partlyDone, "Статус эпика не пересчитан"),
+                () -> assertEquals(TaskStatus.DONE, epic.getTaskStatus(), "Статус эпика не пересчитан массово"),
+                () -> assertEquals(2, epic.countSubtasks(TaskStatus.DONE), "Неверный счетчик выполненных подзадач"),
+                () -> assertEquals(0, epic.countSubtasks(TaskStatus.NEW), "Подзадача осталась в прежнем статусе"),
+                () -> assertFalse(epic.recountSubtaskStatuses(), "Счетчики расходятся с подзадачами")
+        );
+    }
+
+    @Test // Проверка выборки по статусу после создания, обновления, удаления и пересчета статуса эпика
+    void shouldGetByStatus() {
+        Subtask secondSubtask = new Subtask("Подзадача #2", "Проверка", TaskStatus.NEW);
+        taskManager.createNewTask(task);
+        taskManager.createNewEpic(epic);
+        taskManager.createNewSubtask(epic, subtask);
+        taskManager.createNewSubtask(epic, secondSubtask);
+
+        task.setTaskStatus(TaskStatus.DONE);
+        taskManager.updateTask(task);
+        taskManager.deleteSubtaskById(subtask.getTaskId());
+
+        assertAll(
+                () -> assertEquals(List.of(task), taskManager.getByStatus(TaskType.TASK, TaskStatus.DONE),
+                        "Задача не перенесена в новый статус"),
+                () -> assertEquals(0, taskManager.countByStatus(TaskType.TASK, TaskStatus.NEW),
+                        "Задача осталась в прежнем статусе"),
+                () -> assertEquals(List.of(epic), taskManager.getByStatus(TaskType.EPIC, TaskStatus.NEW),
+                        "Эпик не переиндексирован после пересчета статуса"),
+                () -> assertEquals(List.of(secondSubtask), taskManager.getByStatus(TaskType.SUBTASK, TaskStatus.NEW),
+                        "Неверные подзадачи в статусе NEW"),
+                () -> assertEquals(0, taskManager.countByStatus(TaskType.SUBTASK, TaskStatus.IN_PROGRESS),
+                        "Удаленная подзадача осталась в индексе")
+        );
+    }
+
+    @Test // Проверка индекса статусов, когда статус изменен на месте и обновлен тот же объект
+    void shouldReindexStatusChangedInPlace() {
+        taskManager.createNewTask(task);
+        taskManager.createNewEpic(epic);
+        taskManager.createNewSubtask(epic, subtask);
+
+        task.setTaskStatus(TaskStatus.IN_PROGRESS);
+        taskManager.updateTask(task);
+        subtask.setTaskStatus(TaskStatus.DONE);
+        taskManager.updateSubtask(subtask);
+        task.setTaskStatus(TaskStatus.DONE);
+        taskManager.updateTasks(List.of(task));
+
+        assertAll(
+                () -> assertEquals(List.of(task), taskManager.getByStatus(TaskType.TASK, TaskStatus.DONE),
+                        "Задача не перенесена в новый статус"),
+                () -> assertEquals(0, taskManager.countByStatus(TaskType.TASK, TaskStatus.NEW),
+                        "Задача осталась в первом статусе"),
+                () -> assertEquals(0, taskManager.countByStatus(TaskType.TASK, TaskStatus.IN_PROGRESS),
+                        "Задача осталась в промежуточном статусе"),
+                () -> assertEquals(0, taskManager.countByStatus(TaskType.SUBTASK, TaskStatus.IN_PROGRESS),
+                        "Подзадача осталась в прежнем статусе"),
+                () -> assertEquals(List.of(epic), taskManager.getByStatus(TaskType.EPIC, TaskStatus.DONE),
+                        "Эпик не переиндексирован"),
+                () -> assertEquals(List.of(task, epic, subtask), taskManager.query().status(TaskStatus.DONE).list(),
+                        "Неверный результат запроса по статусу"),
+                () -> assertEquals(List.of(), taskManager.query().status(TaskStatus.IN_PROGRESS).list(),
+                        "Запрос нашел задачи в прежнем статусе")
+        );
+    }
+
+    @Test // Проверка поиска по словам: регистр, "ё", префикс, И/ИЛИ, обновление и удаление
+    void shouldSearchByWords() {
+        Task first = new Task("Купить ёлку", "К Новому году", TaskStatus.NEW);
+        Task second = new Task("Проверить отчет", "Квартальный ОТЧЁТ", TaskStatus.NEW);
+        taskManager.createNewTasks(List.of(first, second));
+        taskManager.createNewEpic(epic);
+        taskManager.createNewSubtask(epic, new Subtask("Отчет", "Годовой", TaskStatus.NEW));
+        List<Task> subtasks = List.copyOf(taskManager.getSubtasks());
+
+        assertAll(
+                () -> assertEquals(List.of(first), taskManager.searchAll("ЕЛКУ"), "Не найдено слово с ё"),
+                () -> assertEquals(List.of(second), taskManager.searchAll("отчет квартальный"),
+                        "Неверный результат поиска всех слов"),
+                () -> assertEquals(List.of(first, second, subtasks.getFirst()),
+                        taskManager.searchAny("купить отчет"), "Неверный результат поиска любого слова"),
+                () -> assertEquals(List.of(second, epic), taskManager.searchAll("провер*"),
+                        "Неверный результат поиска по префиксу"),
+                () -> assertTrue(taskManager.searchAll("").isEmpty(), "Пустой запрос нашел задачи")
+        );
+
+        taskManager.updateTask(new Task(second.getTaskId(), "Отправить отчет", "Квартальный", TaskStatus.DONE));
+        taskManager.deleteTaskById(first.getTaskId());
+
+        assertAll(
+                () -> assertEquals(List.of(epic), taskManager.searchAll("провер*"), "Индекс не обновлен"),
+                () -> assertTrue(taskManager.searchAny("ёлку").isEmpty(), "Удаленная задача найдена")
+        );
+    }
+
+    @Test // Проверка постраничного чтения: порядок ID, удаленные задачи, новые задачи и откат удаления
+    void shouldPageTasksByCursor() {
+        List<Task> created = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            created.add(new Task("Задача #" + i, "Проверка", TaskStatus.NEW));
+        }
+        taskManager.createNewTasks(created);
+        for (int i = 0; i < 8; i += 2) {
+            taskManager.deleteTaskById(created.get(i).getTaskId());
+        }
+
+        List<Task> first = taskManager.getTasks(0, 3);
+        taskManager.createNewTask(task);
+        List<Task> second = taskManager.getTasks(first.getLast().getTaskId(), 3);
+        assertThrows(IllegalStateException.class, () -> taskManager.inTransaction(manager -> {
+            manager.deleteTaskById(created.get(1).getTaskId());
+            manager.createNewTask(new Task("Задача #11", "Проверка", TaskStatus.NEW));
+            throw new IllegalStateException("Откат удаления");
+        }));
+
+        assertAll(
+                () -> assertEquals(List.of(created.get(1), created.get(3), created.get(5)), first,
+                        "Неверная первая страница"),
+                () -> assertEquals(List.of(created.get(7), created.get(8), created.get(9)), second,
+                        "Неверная вторая страница"),
+                () -> assertEquals(List.of(task), taskManager.getTasks(created.get(9).getTaskId(), 3),
+                        "Новая задача не попала на последнюю страницу"),
+                () -> assertEquals(taskManager.getTasks().stream().sorted(Comparator.comparingInt(Task::getTaskId))
+                        .toList(), taskManager.getTasks(0, 100), "Порядок не восстановлен после отката"),
+                () -> assertTrue(taskManager.getTasks(0, 0).isEmpty(), "Страница нулевого размера не пуста"),
+                () -> assertThrows(IllegalArgumentException.class, () -> taskManager.getTasks(0, -1),
+                        "Отрицательный размер страницы не отклонен")
+        );
+    }
+
+    @Test // Проверка страниц после отката транзакции, ID которой генератор выдает повторно
+    void shouldPageWithoutDuplicatesAfterRollback() {
+        List<Task> created = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            created.add(new Task("Задача #" + i, "Проверка", TaskStatus.NEW));
+        }
+        taskManager.createNewTasks(created);
+        assertThrows(IllegalStateException.class, () -> taskManager.inTransaction(manager -> {
+            for (int i = 0; i < 3; i++) {
+                manager.createNewTask(new Task("Отмена #" + i, "Проверка", TaskStatus.NEW));
+            }
+            throw new IllegalStateException("Откат создания");
+        }));
+        taskManager.createNewTask(task);
+
+        List<Task> expected = new ArrayList<>(created);
+        expected.add(task);
+        assertAll(
+                () -> assertEquals(created.getLast().getTaskId() + 1, task.getTaskId(), "ID отката не выданы повторно"),
+                () -> assertEquals(expected, taskManager.getTasks(0, 100), "Повтор ID на странице"),
+                () -> assertEquals(List.of(task), taskManager.getTasks(created.getLast().getTaskId(), 100),
+                        "Повтор ID на последней странице"),
+                () -> assertEquals(expected, taskManager.streamTasks().toList(), "Повтор ID в потоке")
+        );
+    }
+
+    @Test // Проверка индексов статусов, слов и порядка ID против перебора всех задач, в том числе после отката транзакций
+    void shouldKeepIndexesConsistent() {
+        Random random = new Random(11);
+        taskManager.createNewEpics(List.of(new Epic("Эпик #1", "Проверка"), new Epic("Эпик #2", "Проверка")));
+
+        for (int round = 0; round < 300; round++) {
+            boolean failing = random.nextInt(4) == 0;
+            try {
+                taskManager.inTransaction(manager -> {
+                    for (int i = 0; i < 5; i++) {
+                        randomChange(manager, random);
+                    }
+                    if (failing) {
+                        throw new IllegalStateException("Откат транзакции");
+                    }
+                });
+            } catch (IllegalStateException ignored) {
+                // Изменения откатываются
+            }
+            randomChange(taskManager, random);
+        }
+
+        for (TaskType taskType : TaskType.values()) {
+            List<? extends Task> all = switch (taskType) {
+                case TASK -> taskManager.getTasks();
+                case EPIC -> taskManager.getEpics();
+                case SUBTASK -> taskManager.getSubtasks();
+            };
+            for (TaskStatus taskStatus : TaskStatus.values()) {
+                List<Task> expected = all.stream().filter(t -> t.getTaskStatus() == taskStatus)
+                        .map(Task.class::cast).sorted(Comparator.comparingInt(Task::getTaskId)).toList();
+                List<Task> actual = new ArrayList<>(taskManager.getByStatus(taskType, taskStatus));
+                actual.sort(Comparator.comparingInt(Task::getTaskId));
+                assertEquals(expected, actual, "Индекс расходится с задачами: " + taskType + " " + taskStatus);
+                assertEquals(expected.size(), taskManager.countByStatus(taskType, taskStatus),
+                        "Неверное число задач: " + taskType + " " + taskStatus);
+            }
+        }
+
+        List<Task> updated = new ArrayList<>();
+        updated.addAll(taskManager.getTasks());
+        updated.addAll(taskManager.getEpics());
+        updated.addAll(taskManager.getSubtasks());
+        updated.removeIf(t -> !t.getTaskDescription().equals("Обновление"));
+        updated.sort(Comparator.comparingInt(Task::getTaskId));
+        assertEquals(updated, taskManager.searchAll("обновл*"), "Индекс слов расходится с задачами");
+
+        List<Subtask> subtasks = new ArrayList<>(taskManager.getSubtasks());
+        subtasks.sort(Comparator.comparingInt(Task::getTaskId));
+        List<Subtask> paged = new ArrayList<>();
+        for (List<Subtask> page = taskManager.getSubtasks(0, 7); !page.isEmpty();
+             page = taskManager.getSubtasks(page.getLast().getTaskId(), 7)) {
+            paged.addAll(page);
+        }
+        assertEquals(subtasks, paged, "Страницы расходятся с подзадачами");
+        assertEquals(subtasks, taskManager.streamSubtasks().toList(), "Поток расходится с подзадачами");
+
+        List<Task> done = taskManager.query().type(TaskType.SUBTASK).status(TaskStatus.DONE).limit(5).list();
+        assertEquals(taskManager.streamSubtasks().filter(t -> t.getTaskStatus() == TaskStatus.DONE).limit(5).toList(),
+                done, "Запрос по индексу статусов расходится с подзадачами");
+    }
+
+    @Test // Проверка событий изменений: создание, обновление, удаление, смена статуса эпика и откат транзакции
+    void shouldPublishChangeEvents() throws InterruptedException {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        BlockingQueue<TaskEvent> received = new LinkedBlockingQueue<>();
+        manager.getEventPublisher().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(TaskEvent event) {
+                received.add(event);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        manager.createNewTask(task);
+        manager.updateTask(new Task(task.getTaskId(), "Задача #1", "Новое описание", TaskStatus.DONE));
+        manager.createNewEpic(epic);
+        manager.createNewSubtask(epic, subtask);
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(changes -> {
+            changes.deleteTaskById(task.getTaskId());
+            throw new IllegalStateException("Откат удаления");
+        }));
+        manager.deleteTaskById(task.getTaskId());
+
+        List<TaskEvent> events = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            events.add(received.poll(5, TimeUnit.SECONDS));
+        }
+        TaskEvent updated = events.get(1);
+
+        assertAll(
+                () -> assertEquals(List.of(TaskEvent.Kind.CREATED, TaskEvent.Kind.UPDATED, TaskEvent.Kind.CREATED,
+                                TaskEvent.Kind.CREATED, TaskEvent.Kind.EPIC_STATUS_CHANGED, TaskEvent.Kind.DELETED),
+                        events.stream().map(TaskEvent::getKind).toList(), "Неверная последовательность событий"),
+                () -> assertEquals(TaskStatus.NEW, updated.getPreviousStatus(), "Неверный прежний статус"),
+                () -> assertEquals(TaskStatus.DONE, updated.getStatus(), "Неверный новый статус"),
+                () -> assertFalse(updated.isNameChanged(), "Название не менялось"),
+                () -> assertTrue(updated.isDescriptionChanged(), "Описание изменилось"),
+                () -> assertEquals(epic.getTaskId(), events.get(3).getEpicId(), "Неверный эпик подзадачи"),
+                () -> assertEquals(TaskStatus.IN_PROGRESS, events.get(4).getStatus(), "Неверный статус эпика"),
+                () -> assertEquals(task.getTaskId(), events.get(5).getTaskId(), "Неверное удаление")
+        );
+    }
+
+    @Test // Проверка выбора плана запроса по индексам и совпадения результата с перебором
+    void shouldQueryWithIndexPlans() {
+        taskManager.createNewEpics(List.of(epic, new Epic("Эпик #2", "Проверка")));
+        Epic other = taskManager.getEpics().getLast();
+        List<Subtask> subtasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            TaskStatus status = i % 10 == 0 ? TaskStatus.DONE : TaskStatus.NEW;
+            subtasks.add(new Subtask("Подзадача #" + i, "Проверка", status));
+        }
+        taskManager.createNewSubtasks(epic, subtasks.subList(0, 150));
+        taskManager.createNewSubtasks(other, subtasks.subList(150, 200));
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tasks.add(new Task(i % 2 == 0 ? "Отчет #" + i : "Встреча #" + i, "Проверка", TaskStatus.NEW));
+        }
+        taskManager.createNewTasks(tasks);
+        int middle = subtasks.get(100).getTaskId();
+
+        TaskQuery byStatus = taskManager.query().status(TaskStatus.DONE).epic(epic.getTaskId()).limit(10);
+        TaskQuery byEpic = taskManager.query().type(TaskType.SUBTASK).epic(other.getTaskId());
+        TaskQuery byName = taskManager.query().namePrefix("Отчет #1");
+        TaskQuery byRange = taskManager.query().ids(middle, middle + 4);
+        TaskQuery scan = taskManager.query().type(TaskType.TASK).limit(3);
+
+        assertAll(
+                () -> assertEquals(subtasks.subList(0, 150).stream().filter(t -> t.getTaskStatus() == TaskStatus.DONE)
+                        .limit(10).toList(), byStatus.list(), "Неверный результат по статусу"),
+                () -> assertTrue(byStatus.explain().startsWith("индекс статусов"), byStatus.explain()),
+                () -> assertEquals(subtasks.subList(150, 200), byEpic.list(), "Неверный результат по эпику"),
+                () -> assertTrue(byEpic.explain().startsWith("подзадачи эпика"), byEpic.explain()),
+                () -> assertEquals(tasks.stream().filter(t -> t.getTaskName().startsWith("Отчет #1")).toList(),
+                        byName.list(), "Неверный результат по названию"),
+                () -> assertTrue(byName.explain().startsWith("индекс слов"), byName.explain()),
+                () -> assertEquals(subtasks.subList(100, 105), byRange.list(), "Неверный результат по диапазону ID"),
+                () -> assertTrue(byRange.explain().startsWith("порядок ID"), byRange.explain()),
+                () -> assertEquals(tasks.subList(0, 3), scan.list(), "Неверный результат перебора"),
+                () -> assertTrue(scan.explain().startsWith("перебор таблиц"), scan.explain()),
+                () -> assertTrue(taskManager.query().type(TaskType.TASK).epic(epic.getTaskId()).list().isEmpty(),
+                        "Условие на эпик пропустило задачу"),
+                () -> assertThrows(IllegalArgumentException.class, () -> taskManager.query().limit(-1),
+                        "Отрицательный предел не отклонен")
+        );
+    }
+
+    @Test // Проверка запроса по диапазону ID после отката транзакции, ID которой генератор выдает повторно
+    void shouldQueryIdRangeWithoutDuplicatesAfterRollback() {
+        List<Task> created = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            created.add(new Task("Задача #" + i, "Проверка", TaskStatus.NEW));
+        }
+        taskManager.createNewTasks(created);
+        assertThrows(IllegalStateException.class, () -> taskManager.inTransaction(manager -> {
+            for (int i = 0; i < 3; i++) {
+                manager.createNewTask(new Task("Отмена #" + i, "Проверка", TaskStatus.NEW));
+            }
+            throw new IllegalStateException("Откат создания");
+        }));
+        taskManager.createNewTask(task);
+
+        TaskQuery query = taskManager.query().type(TaskType.TASK).ids(task.getTaskId(), task.getTaskId() + 9);
+        assertAll(
+                () -> assertEquals(List.of(task), query.list(), "Повтор ID в результате запроса"),
+                () -> assertTrue(query.explain().startsWith("порядок ID, оценка кандидатов: 1"), query.explain()),
+                () -> assertEquals(created.subList(5, 10), taskManager.query().type(TaskType.TASK)
+                        .ids(created.get(5).getTaskId(), created.getLast().getTaskId()).list(),
+                        "Неверный результат по диапазону до отката")
+        );
+    }
+
+    @Test // Проверка потока по таблице: порядок ID, точный размер частей, параллельный обход и живое представление
+    void shouldStreamWithoutCopies() {
+        List<Task> created = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            created.add(new Task("Задача #" + i, "Проверка", TaskStatus.NEW));
+        }
+        taskManager.createNewTasks(created);
+        for (int i = 0; i < 1_000; i += 3) {
+            taskManager.deleteTaskById(created.get(i).getTaskId());
+        }
+        Collection<Task> view = taskManager.getTasksView();
+        List<Task> expected = taskManager.getTasks(0, 1_000);
+
+        Spliterator<Task> spliterator = taskManager.streamTasks().spliterator();
+        long size = spliterator.getExactSizeIfKnown();
+        Spliterator<Task> prefix = spliterator.trySplit();
+
+        assertAll(
+                () -> assertEquals(expected, taskManager.streamTasks().toList(), "Поток не в порядке ID"),
+                () -> assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED),
+                        "Размер потока неизвестен"),
+                () -> assertEquals(expected.size(), size, "Неверный размер потока"),
+                () -> assertEquals(size, prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown(),
+                        "Размеры частей не сходятся"),
+                () -> assertEquals(expected.stream().mapToInt(Task::getTaskId).sum(),
+                        taskManager.streamTasks().parallel().mapToInt(Task::getTaskId).sum(),
+                        "Неверный результат параллельного обхода"),
+                () -> assertThrows(UnsupportedOperationException.class, () -> view.add(task),
+                        "Представление изменяемо"),
+                () -> assertThrows(UnsupportedOperationException.class, () -> view.remove(expected.getFirst()),
+                        "Представление изменяемо")
+        );
+
+        taskManager.createNewTask(task);
+        taskManager.getTaskById(task.getTaskId());
+        assertAll(
+                () -> assertEquals(expected.size() + 1, view.size(), "Представление не видит новую задачу"),
+                () -> assertTrue(view.contains(task), "Представление не видит новую задачу"),
+                () -> assertEquals(List.of(task), taskManager.streamHistory().toList(), "Неверный поток истории")
+        );
+    }
+
+    // Случайное изменение: создание, обновление или удаление задачи или подзадачи, обновление эпика
+    private static void randomChange(TaskManager manager, Random random) {
+        TaskStatus status = TaskStatus.values()[random.nextInt(TaskStatus.values().length)];
+        List<Task> tasks = manager.getTasks();
+        List<Epic> epics = manager.getEpics();
+        List<Subtask> subtasks = manager.getSubtasks();
+        switch (random.nextInt(7)) {
+            case 0 -> manager.createNewTask(new Task("Задача", "Проверка", status));
+            case 1 -> manager.createNewSubtask(epics.get(random.nextInt(epics.size())),
+                    new Subtask("Подзадача", "Проверка", status));
+            case 2 -> {
+                if (!tasks.isEmpty()) {
+                    Task current = tasks.get(random.nextInt(tasks.size()));
+                    current.setTaskStatus(status);
+                    manager.updateTask(current);
+                }
+            }
+            case 3 -> {
+                if (!subtasks.isEmpty()) {
+                    int identifier = subtasks.get(random.nextInt(subtasks.size())).getTaskId();
+                    manager.updateSubtask(new Subtask(identifier, "Подзадача", "Обновление", status));
+                }
+            }
+            case 4 -> {
+                if (!tasks.isEmpty()) {
+                    manager.deleteTaskById(tasks.get(random.nextInt(tasks.size())).getTaskId());
+                }
+            }
+            case 5 -> {
+                if (!subtasks.isEmpty()) {
+                    manager.deleteSubtaskById(subtasks.get(random.nextInt(subtasks.size())).getTaskId());
+                }
+            }
+            default -> {
+                Epic current = epics.get(random.nextInt(epics.size()));
+                manager.updateEpic(new Epic(current.getTaskId(), "Эпик", "Обновление"));
+            }
+        }
+    }
 }
@@ -0,0 +1,72 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectMapTest {
+
+    @Test // Проверка вставки, замены, удаления и расширения таблицы в сравнении с HashMap
+    void shouldBehaveLikeHashMap() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            // Ключи кратны 64, чтобы получались длинные цепочки и сдвиги через конец таблицы
+            int key = random.nextInt(500) * 64 - 1000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key), "Неверное удаленное значение");
+            } else {
+                assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i), "Неверное прежнее значение");
+            }
+        }
+
+        assertAll(
+                () -> assertEquals(expected, map, "Содержимое отличается от HashMap"),
+                () -> assertEquals(expected.size(), map.size(), "Неверный размер"),
+                () -> assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()),
+                        "Неверные значения"),
+                () -> assertNull(map.get(Integer.MIN_VALUE), "Найден отсутствующий ключ")
+        );
+    }
+
+    @Test // Проверка удаления через итератор: каждая запись проходится ровно один раз
+    void shouldRemoveThroughIterator() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            IntObjectMap<Integer> map = new IntObjectMap<>();
+            for (int i = 0; i < 40; i++) {
+                int key = random.nextInt(6) * 32 + 30 + random.nextInt(4); // Цепочки через конец таблицы
+                map.put(key, Integer.valueOf(key));
+            }
+            Set<Integer> keys = new HashSet<>(map.keySet());
+
+            Set<Integer> visited = new HashSet<>();
+            map.values().removeIf(value -> {
+                assertTrue(visited.add(value), "Запись пройдена дважды");
+                return value % 2 == 0;
+            });
+
+            Set<Integer> expected = new HashSet<>(keys);
+            expected.removeIf(key -> key % 2 == 0);
+            assertAll(
+                    () -> assertEquals(keys, visited, "Пройдены не все записи"),
+                    () -> assertEquals(expected, map.keySet(), "Неверные оставшиеся ключи")
+            );
+        }
+    }
+
+    @Test // Проверка обхода последовательных ID по возрастанию, как у HashMap
+    void shouldIterateSequentialKeysInOrder() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        for (int key = 100; key >= 1; key--) {
+            map.put(key, Integer.valueOf(key));
+        }
+
+        List<Integer> keys = new ArrayList<>(map.keySet());
+        assertEquals(new ArrayList<>(new TreeSet<>(keys)), keys, "Ключи обходятся не по возрастанию");
+    }
+}
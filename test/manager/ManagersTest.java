@@ -2,6 +2,7 @@ package manager;
 
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 public class ManagersTest {
@@ -11,9 +12,16 @@ public class ManagersTest {
         assertNotNull(Managers.getDefault());
     }
 
+    @Test // Проверка утилитарного класса при возврате потокобезопасных менеджеров
+    void shouldReturnThreadSafeTaskManagers() {
+        assertInstanceOf(ConcurrentTaskManager.class, Managers.getConcurrent());
+        assertInstanceOf(StampedTaskManager.class, Managers.getReadOptimized());
+    }
+
     @Test // Проверка утилитарного класса при возврате экземпляра менеджера истории
     void shouldNotBeNullForHistoryManager() {
         assertNotNull(Managers.getDefaultHistory());
+        assertInstanceOf(ConcurrentHistoryManager.class, Managers.getConcurrentHistory());
     }
 
 }
@@ -0,0 +1,145 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tasks.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTaskReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test // Проверка чтения CSV окнами, меньшими размера файла
+    void shouldReadCsvAcrossWindows() throws IOException {
+        File file = tempDir.resolve("tasks.csv").toFile();
+        StringBuilder content = new StringBuilder(CSVFormatter.getHeader()).append('\n');
+        for (int i = 1; i <= 100; i++) {
+            content.append(CSVFormatter.toString(new Task(i, "Задача " + i, "Описание", TaskStatus.NEW)))
+                    .append('\n');
+        }
+        Files.writeString(file.toPath(), content);
+
+        List<Task> tasks = readAll(file, 64);
+
+        assertEquals(100, tasks.size(), "Прочитаны не все задачи");
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(i + 1, tasks.get(i).getTaskId(), "Нарушен порядок задач");
+            assertEquals("Задача " + (i + 1), tasks.get(i).getTaskName(), "Неверное название задачи");
+        }
+    }
+
+    @Test // Проверка разбора всех типов задач и переводов строк Windows
+    void shouldParseCsvFields() throws IOException {
+        File file = tempDir.resolve("tasks.csv").toFile();
+        Files.writeString(file.toPath(), CSVFormatter.getHeader() + "\r\n"
+                + "1,task,Задача,in_progress,Описание,\r\n"
+                + "2,EPIC,Эпик,DONE,Описание,\r\n"
+                + "3,SUBTASK,Подзадача,DONE,Описание,2\r\n");
+
+        List<Task> tasks = readAll(file, MappedTaskReader.DEFAULT_WINDOW_SIZE);
+
+        assertAll(
+                () -> assertEquals(3, tasks.size(), "Неверное количество задач"),
+                () -> assertEquals(TaskStatus.IN_PROGRESS, tasks.get(0).getTaskStatus(), "Неверный статус"),
+                () -> assertInstanceOf(Epic.class, tasks.get(1), "Должен быть эпик"),
+                () -> assertEquals(TaskStatus.DONE, tasks.get(1).getTaskStatus(), "Неверный статус эпика"),
+                () -> assertEquals(2, ((Subtask) tasks.get(2)).getEpicIdentifier(), "Неверный ID эпика"),
+                () -> assertEquals("Описание", tasks.get(2).getTaskDescription(), "Лишний символ в описании")
+        );
+    }
+
+    @Test // Проверка чтения двоичного файла окнами, меньшими размера файла
+    void shouldReadBinaryAcrossWindows() throws IOException {
+        File file = tempDir.resolve("tasks.bin").toFile();
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+            BinaryFormatter.writeHeader(output, 100);
+            for (int i = 1; i <= 100; i++) {
+                BinaryFormatter.write(output, new Task(i, "Задача " + i, "Описание", TaskStatus.DONE));
+            }
+        }
+
+        List<Task> tasks = readAll(file, 64);
+
+        assertEquals(100, tasks.size(), "Прочитаны не все задачи");
+        assertEquals("Задача 100", tasks.getLast().getTaskName(), "Неверное название последней задачи");
+    }
+
+    @Test // Проверка параллельного разбора кусков: порядок кусков и задач внутри них сохраняется
+    void shouldReadCsvInParallelChunks() throws IOException {
+        File file = tempDir.resolve("tasks.csv").toFile();
+        StringBuilder content = new StringBuilder(CSVFormatter.getHeader()).append('\n');
+        for (int i = 1; i <= 1000; i++) {
+            content.append(CSVFormatter.toString(new Task(i, "Задача " + i, "Описание", TaskStatus.NEW)))
+                    .append('\n');
+        }
+        Files.writeString(file.toPath(), content);
+
+        List<Chunk> chunks = new MappedTaskReader(4096, 1024).readChunks(file, Chunk::new);
+        List<Task> tasks = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            tasks.addAll(chunk.tasks);
+        }
+
+        assertTrue(chunks.size() > 1, "Файл должен быть разбит на несколько кусков");
+        assertEquals(1000, tasks.size(), "Прочитаны не все задачи");
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(i + 1, tasks.get(i).getTaskId(), "Нарушен порядок задач");
+        }
+    }
+
+    @Test // Проверка границ кусков и окон при переводах строк внутри полей в кавычках
+    void shouldNotSplitQuotedLineBreaks() throws IOException {
+        File file = tempDir.resolve("tasks.csv").toFile();
+        StringBuilder content = new StringBuilder(CSVFormatter.getHeader()).append('\n');
+        for (int i = 1; i <= 200; i++) {
+            content.append(CSVFormatter.toString(new Task(i, "Задача, " + i, "Строка 1\nСтрока 2\n", TaskStatus.NEW)))
+                    .append('\n');
+        }
+        Files.writeString(file.toPath(), content);
+
+        List<Chunk> chunks = new MappedTaskReader(1024, 128).readChunks(file, Chunk::new);
+        List<Task> tasks = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            tasks.addAll(chunk.tasks);
+        }
+
+        assertEquals(200, tasks.size(), "Неверное количество задач");
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals("Задача, " + (i + 1), tasks.get(i).getTaskName(), "Неверное название задачи");
+            assertEquals("Строка 1\nСтрока 2\n", tasks.get(i).getTaskDescription(), "Неверное описание задачи");
+        }
+    }
+
+    @Test // Проверка обработки строки неверного формата
+    void shouldRejectIncorrectCsv() throws IOException {
+        File file = tempDir.resolve("tasks.csv").toFile();
+        Files.writeString(file.toPath(), CSVFormatter.getHeader() + "\n1,TASK,Задача\n");
+
+        assertThrows(IllegalArgumentException.class, () -> readAll(file, MappedTaskReader.DEFAULT_WINDOW_SIZE));
+    }
+
+    private static List<Task> readAll(File file, long windowSize) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        new MappedTaskReader(windowSize, MappedTaskReader.DEFAULT_CHUNK_SIZE).read(file, tasks::add);
+        return tasks;
+    }
+
+    // Задачи одного куска
+    private static class Chunk implements Consumer<Task> {
+        private final List<Task> tasks = new ArrayList<>();
+
+        @Override
+        public void accept(Task task) {
+            tasks.add(task);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StampedTaskManagerTest {
+
+    @Test // Проверка чтения из нескольких потоков во время изменений подзадач эпика
+    void shouldReadConsistentlyDuringWrites() throws InterruptedException {
+        TaskManager taskManager = Managers.getReadOptimized();
+        Epic epic = new Epic("Эпик", "Проверка");
+        taskManager.createNewEpic(epic);
+        AtomicInteger failures = new AtomicInteger();
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                Subtask subtask = new Subtask("Подзадача", "Проверка", TaskStatus.NEW);
+                taskManager.createNewSubtask(epic, subtask);
+                if (i % 2 == 0) {
+                    taskManager.deleteSubtaskById(subtask.getTaskId());
+                }
+            }
+        });
+        Thread[] readers = new Thread[3];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                while (writer.isAlive()) {
+                    List<Subtask> subtasks = taskManager.getEpicSubtasks(epic);
+                    if (subtasks.contains(null) || taskManager.getEpicById(epic.getTaskId()) != epic) {
+                        failures.incrementAndGet();
+                    }
+                    taskManager.getSubtasks();
+                }
+            });
+        }
+
+        writer.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertAll(
+                () -> assertEquals(0, failures.get(), "Прочитано несогласованное состояние"),
+                () -> assertEquals(1000, taskManager.getEpicSubtasks(epic).size(), "Неверное количество подзадач"),
+                () -> assertEquals(1000, taskManager.getSubtasks().size(), "Неверное количество подзадач")
+        );
+    }
+
+    @Test // Проверка истории и транзакции в обертке
+    void shouldKeepHistoryAndTransactions() {
+        TaskManager taskManager = new StampedTaskManager(new InMemoryTaskManager());
+        Task task = new Task("Задача", "Проверка", TaskStatus.NEW);
+        Task anotherTask = new Task("Задача 2", "Проверка", TaskStatus.NEW);
+
+        taskManager.inTransaction(manager -> {
+            manager.createNewTask(task);
+            manager.createNewTask(anotherTask);
+        });
+        taskManager.getTaskById(task.getTaskId());
+        taskManager.getTaskById(anotherTask.getTaskId());
+        taskManager.deleteTaskById(task.getTaskId());
+
+        assertAll(
+                () -> assertEquals(List.of(anotherTask), taskManager.getTasks(), "Неверный список задач"),
+                () -> assertEquals(List.of(anotherTask), taskManager.getHistory(), "Неверная история"),
+                () -> assertNull(taskManager.getTaskById(task.getTaskId()), "Удаленная задача найдена")
+        );
+    }
+}
@@ -0,0 +1,119 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskEventPublisherTest {
+
+    @Test // Проверка, что переполнение буфера медленного подписчика не останавливает публикацию и завершает подписку ошибкой
+    void shouldFailSlowSubscriberWithoutBlocking() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        TaskEventPublisher publisher = new TaskEventPublisher(executor, 4);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+
+        publisher.subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(TaskEvent event) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.add(event);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                received.add(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                received.add("завершение");
+            }
+        });
+
+        publisher.publish(TaskEvent.created(TaskType.TASK, new Task(1, "Задача", "Проверка", TaskStatus.NEW)));
+        assertTrue(started.await(5, TimeUnit.SECONDS), "Первое событие не доставлено");
+        long start = System.nanoTime();
+        for (int identifier = 2; identifier <= 100; identifier++) {
+            publisher.publish(TaskEvent.created(TaskType.TASK, new Task(identifier, "Задача", "Проверка", TaskStatus.NEW)));
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+
+        Object first = received.poll(5, TimeUnit.SECONDS);
+        Object last = first;
+        while (last instanceof TaskEvent) {
+            last = received.poll(5, TimeUnit.SECONDS);
+        }
+        publisher.close();
+        executor.shutdown();
+
+        Object firstEvent = first;
+        Object failure = last;
+        assertAll(
+                () -> assertTrue(elapsed < 1_000, "Публикация ждала подписчика"),
+                () -> assertEquals(1, ((TaskEvent) firstEvent).getTaskId(), "Первое событие не доставлено"),
+                () -> assertInstanceOf(IllegalStateException.class, failure, "Переполнение не завершило подписку"),
+                () -> assertFalse(publisher.isActive(), "Завершенная подписка считается активной")
+        );
+    }
+
+    @Test // Проверка доставки событий по порядку и завершения подписки при закрытии
+    void shouldDeliverEventsInOrder() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        TaskEventPublisher publisher = new TaskEventPublisher(executor, 256);
+        BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+        publisher.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(TaskEvent event) {
+                received.add(event.getTaskId());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                received.add(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                received.add("завершение");
+            }
+        });
+
+        for (int identifier = 1; identifier <= 3; identifier++) {
+            publisher.publish(TaskEvent.created(TaskType.TASK, new Task(identifier, "Задача", "Проверка", TaskStatus.NEW)));
+        }
+        publisher.close();
+        List<Object> events = List.of(received.poll(5, TimeUnit.SECONDS), received.poll(5, TimeUnit.SECONDS),
+                received.poll(5, TimeUnit.SECONDS), received.poll(5, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(List.of(1, 2, 3, "завершение"), events, "Неверный порядок доставки");
+    }
+}
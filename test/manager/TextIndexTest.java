@@ -0,0 +1,57 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextIndexTest {
+
+    @Test // Проверка разбора: нормализация, комбинируемые знаки внутри слова, регистр, префикс
+    void shouldParseUnicodeWords() {
+        String decomposed = "Новыи\u0306 ПЛАН, ёж-2 зада*"; // "й" из "и" и комбинируемого знака
+        List<String> words = TextIndex.parse(decomposed).stream().map(TextIndex.Term::toString).toList();
+
+        assertEquals(List.of("новый", "план", "еж", "2", "зада*"), words, "Неверный разбор текста");
+    }
+
+    @Test // Проверка слов начала названия: неполное последнее слово ищется как префикс без последней буквы
+    void shouldParseNamePrefix() {
+        assertAll(
+                () -> assertEquals(List.of("задача", "отч*"), words(TextIndex.prefixTerms("Задача: отче")),
+                        "Неверные слова начала названия"),
+                () -> assertEquals(List.of("задача"), words(TextIndex.prefixTerms("Задача #1")),
+                        "Слово из одного символа не отброшено"),
+                () -> assertEquals(List.of("задача"), words(TextIndex.prefixTerms("Задача ")),
+                        "Полное слово стало префиксом")
+        );
+    }
+
+    private static List<String> words(List<TextIndex.Term> terms) {
+        return terms.stream().map(TextIndex.Term::toString).toList();
+    }
+
+    @Test // Проверка объединения списков по префиксу и пересечения со списком слова
+    void shouldIntersectPrefixUnion() {
+        TextIndex index = new TextIndex();
+        for (int identifier = 1; identifier <= 1_000; identifier++) {
+            String name = identifier % 2 == 0 ? "задача" : "задание";
+            String description = identifier % 100 == 0 ? "срочно" : "потом";
+            index.add(new Task(identifier, name, description, TaskStatus.NEW));
+        }
+        index.remove(500);
+        index.add(new Task(300, "заметка", "потом", TaskStatus.NEW));
+
+        assertAll(
+                () -> assertEquals(998, index.searchAll(TextIndex.parse("зада*")).length,
+                        "Неверное объединение по префиксу"),
+                () -> assertArrayEquals(new int[]{100, 200, 400, 600, 700, 800, 900, 1000},
+                        index.searchAll(TextIndex.parse("зад* срочно")), "Неверное пересечение"),
+                () -> assertArrayEquals(new int[]{300}, index.searchAny(TextIndex.parse("заметка")),
+                        "Переиндексированная задача не найдена")
+        );
+    }
+}
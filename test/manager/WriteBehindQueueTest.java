@@ -0,0 +1,83 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindQueueTest {
+
+    @Test // Проверка объединения ещё не записанных изменений одной задачи
+    void shouldCoalescePendingRecordsForSameTask() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> written = new ArrayList<>();
+
+        WriteBehindQueue queue = new WriteBehindQueue(16, "test", records -> {
+            awaitQuietly(release);
+            synchronized (written) {
+                written.addAll(records);
+            }
+        });
+
+        queue.offer(List.of("+,1,TASK,Задача,NEW,Первая,"));   // Забирается потоком записи и ждет
+        Thread.sleep(50);
+        queue.offer(List.of("+,2,TASK,Задача,NEW,Первая,"));
+        queue.offer(List.of("+,2,TASK,Задача,DONE,Вторая,"));
+        queue.offer(List.of("-,2"));
+        queue.offer(List.of("+,3,TASK,Задача,NEW,Первая,"));
+        release.countDown();
+        queue.flush();
+        queue.close();
+
+        assertEquals(List.of("+,1,TASK,Задача,NEW,Первая,", "-,2", "+,3,TASK,Задача,NEW,Первая,"), written,
+                "Изменения задачи 2 должны объединиться в одну запись");
+    }
+
+    @Test // Записи после очистки по типу не должны объединяться с записями до неё
+    void shouldNotCoalesceAcrossClear() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> written = new ArrayList<>();
+
+        WriteBehindQueue queue = new WriteBehindQueue(16, "test", records -> {
+            awaitQuietly(release);
+            synchronized (written) {
+                written.addAll(records);
+            }
+        });
+
+        queue.offer(List.of("+,1,TASK,Задача,NEW,Первая,"));
+        Thread.sleep(50);
+        queue.offer(List.of("+,2,TASK,Задача,NEW,Первая,"));
+        queue.offer(List.of("*,TASK"));
+        queue.offer(List.of("+,2,TASK,Задача,DONE,Вторая,"));
+        release.countDown();
+        queue.close();
+
+        assertEquals(4, written.size(), "Запись после очистки не должна переноситься раньше неё");
+        assertEquals("+,2,TASK,Задача,DONE,Вторая,", written.getLast());
+    }
+
+    @Test // Ошибка записи должна возвращаться вызывающему потоку
+    void shouldReportWriteFailure() {
+        WriteBehindQueue queue = new WriteBehindQueue(4, "test", records -> {
+            throw new IOException("Диск переполнен");
+        });
+
+        assertThrows(IOException.class, () -> {
+            queue.offer(List.of("+,1,TASK,Задача,NEW,Первая,"));
+            queue.flush();
+        });
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
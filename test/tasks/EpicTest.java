@@ -63,4 +63,39 @@ class EpicTest {
         assertTrue(list.isEmpty(), "Для эпика без подзадач должен возвращаться пустой список");
     }
 
+    @Test // Проверка счетчиков статусов при добавлении, замене и удалении подзадач
+    void statusCountersShouldFollowSubtaskChanges() {
+        firstSubtask.setTaskId(1);
+        secondSubtask.setTaskId(2);
+        epic.addSubtask(firstSubtask);
+        epic.addSubtask(secondSubtask);
+        epic.refreshStatus();
+        TaskStatus mixedStatus = epic.getTaskStatus();
+
+        Subtask doneSubtask = new Subtask(secondSubtask.getTaskId(), "Подзадача 2", "Готово", TaskStatus.DONE);
+        epic.replaceSubtask(doneSubtask);
+        epic.removeSubtask(firstSubtask);
+        epic.refreshStatus();
+
+        assertAll(
+                () -> assertEquals(TaskStatus.IN_PROGRESS, mixedStatus, "Неверный статус эпика"),
+                () -> assertEquals(0, epic.countSubtasks(TaskStatus.NEW), "Неверное число новых подзадач"),
+                () -> assertEquals(0, epic.countSubtasks(TaskStatus.IN_PROGRESS), "Неверное число подзадач в работе"),
+                () -> assertEquals(1, epic.countSubtasks(TaskStatus.DONE), "Неверное число выполненных подзадач"),
+                () -> assertEquals(TaskStatus.DONE, epic.getTaskStatus(), "Неверный статус эпика"),
+                () -> assertFalse(epic.recountSubtaskStatuses(), "Счетчики расходятся с подзадачами")
+        );
+    }
+
+    @Test // Проверка исправления счетчиков пересчетом после прямого изменения статуса подзадачи
+    void recountShouldRepairCounters() {
+        epic.addSubtask(firstSubtask);
+        firstSubtask.setTaskStatus(TaskStatus.DONE);
+
+        assertAll(
+                () -> assertTrue(epic.recountSubtaskStatuses(), "Расхождение счетчиков не найдено"),
+                () -> assertEquals(1, epic.countSubtasks(TaskStatus.DONE), "Счетчик не исправлен"),
+                () -> assertFalse(epic.recountSubtaskStatuses(), "Счетчики не исправлены")
+        );
+    }
 }
@@ -0,0 +1,107 @@
+package tasks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubtaskListTest {
+
+    @Test // Проверка добавления, замены и удаления по ID в сравнении с ArrayList
+    void shouldBehaveLikeArrayList() {
+        SubtaskList list = new SubtaskList();
+        List<Subtask> expected = new ArrayList<>();
+        Random random = new Random(3);
+        int nextId = 1;
+
+        for (int i = 0; i < 5_000; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 4 || expected.isEmpty()) {
+                Subtask subtask = subtask(nextId++, TaskStatus.values()[random.nextInt(3)]);
+                list.add(subtask);
+                expected.add(subtask);
+            } else if (operation < 6) {
+                Subtask current = expected.get(random.nextInt(expected.size()));
+                Subtask replacement = subtask(current.getTaskId(), TaskStatus.values()[random.nextInt(3)]);
+                assertSame(current, list.replace(replacement), "Неверная прежняя подзадача");
+                expected.set(expected.indexOf(current), replacement);
+            } else if (operation < 8) {
+                Subtask current = expected.remove(random.nextInt(expected.size()));
+                assertSame(current, list.removeById(current.getTaskId()), "Неверная удаленная подзадача");
+            } else if (operation < 9) {
+                int index = random.nextInt(expected.size());
+                assertSame(expected.remove(index), list.remove(index), "Неверная удаленная по номеру подзадача");
+            } else {
+                Iterator<Subtask> iterator = list.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().getTaskId() % 7 == 0) {
+                        iterator.remove();
+                    }
+                }
+                expected.removeIf(subtask -> subtask.getTaskId() % 7 == 0);
+            }
+        }
+
+        int missingId = nextId;
+        assertAll(
+                () -> assertEquals(expected, list, "Содержимое отличается от ArrayList"),
+                () -> assertArrayEquals(expected.stream().mapToInt(Task::getTaskId).toArray(), list.ids(),
+                        "Неверные ID"),
+                () -> assertEquals(expected.stream().filter(s -> s.getTaskStatus() == TaskStatus.DONE).count(),
+                        list.count(TaskStatus.DONE), "Неверное число выполненных подзадач"),
+                () -> assertFalse(list.recount(), "Счетчики расходятся с подзадачами"),
+                () -> assertNull(list.findById(missingId), "Найдена отсутствующая подзадача")
+        );
+    }
+
+    @Test // Проверка подзадач без ID и повторов ID, которые ищутся перебором
+    void shouldKeepUnindexedSubtasks() {
+        SubtaskList list = new SubtaskList();
+        Subtask first = subtask(0, TaskStatus.NEW);
+        Subtask second = subtask(0, TaskStatus.DONE);
+        Subtask duplicate = subtask(5, TaskStatus.NEW);
+        list.add(first);
+        list.add(second);
+        list.add(subtask(5, TaskStatus.IN_PROGRESS));
+        list.add(duplicate);
+
+        list.removeById(5);
+
+        assertAll(
+                () -> assertEquals(3, list.size(), "Неверный размер"),
+                () -> assertSame(first, list.getFirst(), "Неверный порядок"),
+                () -> assertSame(duplicate, list.findById(5), "Повтор ID не найден"),
+                () -> assertTrue(list.remove(second), "Подзадача без ID не удалена"),
+                () -> assertArrayEquals(new int[]{0, 5}, list.ids(), "Неверные ID")
+        );
+    }
+
+    @Test // Проверка счетчиков, когда статус подзадачи изменен на месте и подзадача заменена ею же самой
+    void shouldRecountSubtaskReplacedBySelf() {
+        SubtaskList list = new SubtaskList();
+        Subtask first = subtask(1, TaskStatus.NEW);
+        Subtask second = subtask(2, TaskStatus.NEW);
+        list.add(first);
+        list.add(second);
+        list.add(0, subtask(3, TaskStatus.IN_PROGRESS));
+
+        first.setTaskStatus(TaskStatus.DONE);
+        Subtask previous = list.replace(first);
+        second.setTaskStatus(TaskStatus.DONE);
+        list.replaceAll(subtask -> subtask);
+        list.removeById(3);
+
+        assertAll(
+                () -> assertSame(first, previous, "Неверная прежняя подзадача"),
+                () -> assertEquals(2, list.count(TaskStatus.DONE), "Статус не переучтен"),
+                () -> assertEquals(0, list.count(TaskStatus.NEW), "Прежний статус остался в счетчике"),
+                () -> assertEquals(0, list.count(TaskStatus.IN_PROGRESS), "Удаленная подзадача осталась в счетчике"),
+                () -> assertFalse(list.recount(), "Счетчики расходятся с подзадачами")
+        );
+    }
+
+    private static Subtask subtask(int identifier, TaskStatus status) {
+        return new Subtask(identifier, "Подзадача " + identifier, "Проверка", status);
+    }
+}